@@ -0,0 +1,44 @@
+// src/main/java/com/somdiproy/lambda/suggestions/model/AnalysisCheckpoint.java
+package com.somdiproy.lambda.suggestions.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Progress of an analysis across invocations, as stored on its analysis record:
+ * the issues already processed and the running suggestion/token/cost totals
+ */
+public class AnalysisCheckpoint {
+
+    private static final AnalysisCheckpoint EMPTY = new AnalysisCheckpoint(Set.of(), 0, 0, 0, 0.0);
+
+    private final Set<String> processedIssueIds;
+    private final int segment;
+    private final int suggestionCount;
+    private final int tokensUsed;
+    private final double cost;
+
+    public AnalysisCheckpoint(Set<String> processedIssueIds, int segment, int suggestionCount, int tokensUsed,
+                              double cost) {
+        this.processedIssueIds = Collections.unmodifiableSet(new HashSet<>(processedIssueIds));
+        this.segment = segment;
+        this.suggestionCount = suggestionCount;
+        this.tokensUsed = tokensUsed;
+        this.cost = cost;
+    }
+
+    public static AnalysisCheckpoint empty() {
+        return EMPTY;
+    }
+
+    public boolean isProcessed(Object issueId) {
+        return issueId != null && processedIssueIds.contains(issueId.toString());
+    }
+
+    public Set<String> getProcessedIssueIds() { return processedIssueIds; }
+    public int getSegment() { return segment; }
+    public int getSuggestionCount() { return suggestionCount; }
+    public int getTokensUsed() { return tokensUsed; }
+    public double getCost() { return cost; }
+}
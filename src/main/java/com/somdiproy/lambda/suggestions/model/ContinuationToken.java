@@ -0,0 +1,83 @@
+// src/main/java/com/somdiproy/lambda/suggestions/model/ContinuationToken.java
+package com.somdiproy.lambda.suggestions.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Base64;
+
+/**
+ * Opaque token handed back when an analysis did not finish within one invocation.
+ * The caller re-sends the original request with the token; the next invocation loads
+ * the checkpoint of the analysis and skips the issues already processed.
+ */
+public class ContinuationToken {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @JsonProperty("analysisId")
+    private final String analysisId;
+
+    @JsonProperty("segment")
+    private final int segment;
+
+    @JsonProperty("issuedAt")
+    private final long issuedAt;
+
+    @JsonCreator
+    public ContinuationToken(@JsonProperty("analysisId") String analysisId,
+                             @JsonProperty("segment") int segment,
+                             @JsonProperty("issuedAt") long issuedAt) {
+        this.analysisId = analysisId;
+        this.segment = segment;
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * Token for the invocation following the given (1-based) segment
+     */
+    public static ContinuationToken after(String analysisId, int segment) {
+        return new ContinuationToken(analysisId, segment, System.currentTimeMillis());
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode continuation token", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is not one we issued
+     */
+    public static ContinuationToken decode(String token) {
+        try {
+            ContinuationToken decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(token),
+                    ContinuationToken.class);
+            if (decoded.analysisId == null || decoded.segment < 1) {
+                throw new IllegalArgumentException("Incomplete continuation token");
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed continuation token", e);
+        }
+    }
+
+    public String getAnalysisId() { return analysisId; }
+
+    /**
+     * Number of invocations already run for the analysis
+     */
+    public int getSegment() { return segment; }
+
+    public long getIssuedAt() { return issuedAt; }
+
+    @Override
+    public String toString() {
+        return "ContinuationToken[" + analysisId + " after segment " + segment + "]";
+    }
+}
@@ -1,6 +1,7 @@
 // src/main/java/com/somdiproy/lambda/suggestions/model/DeveloperSuggestion.java
 package com.somdiproy.lambda.suggestions.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -85,6 +86,17 @@ public class DeveloperSuggestion {
         return new Builder();
     }
     
+    /**
+     * Builder pre-populated with this suggestion's values (components are shared, not copied)
+     */
+    public Builder toBuilder() {
+        return new Builder().issueId(issueId).issueType(issueType).issueCategory(issueCategory)
+                .issueSeverity(issueSeverity).language(language).issueDescription(issueDescription)
+                .immediateFix(immediateFix).bestPractice(bestPractice).testing(testing).prevention(prevention)
+                .tokensUsed(tokensUsed).cost(cost).timestamp(timestamp).modelUsed(modelUsed)
+                .file(file).line(line);
+    }
+    
     public static class Builder {
         private String issueId;
         private String issueType;
@@ -299,6 +311,14 @@ public class DeveloperSuggestion {
         
         public Tool() {}
         
+        /**
+         * Models sometimes list tools as plain names
+         */
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        public static Tool fromName(String name) {
+            return builder().name(name).build();
+        }
+        
         private Tool(Builder builder) {
             this.name = builder.name;
             this.description = builder.description;
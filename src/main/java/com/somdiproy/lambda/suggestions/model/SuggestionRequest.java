@@ -49,6 +49,12 @@ public class SuggestionRequest {
 
     @JsonProperty("processingMode")
     private String processingMode; // "standard", "fallback", "template"
+
+    @JsonProperty("continuationToken")
+    private String continuationToken; // From a previous "partial" response; resumes the analysis
+
+    @JsonProperty("shardId")
+    private String shardId; // Set by a coordinator on the worker requests it fans out
     
     // Constructors
     public SuggestionRequest() {}
@@ -85,6 +91,28 @@ public class SuggestionRequest {
 		this.processingMode = processingMode;
 	}
 
+	/**
+	 * Worker request for one shard of this analysis
+	 */
+	public SuggestionRequest forShard(String shardId, List<Map<String, Object>> shardIssues) {
+		SuggestionRequest shard = new SuggestionRequest();
+		shard.sessionId = sessionId;
+		shard.analysisId = analysisId;
+		shard.repository = repository;
+		shard.branch = branch;
+		shard.issues = shardIssues;
+		shard.stage = stage;
+		shard.scanNumber = scanNumber;
+		shard.timestamp = timestamp;
+		shard.metadata = metadata;
+		shard.modelId = modelId;
+		shard.issueSeverity = issueSeverity;
+		shard.strategy = strategy;
+		shard.processingMode = "worker";
+		shard.shardId = shardId;
+		return shard;
+	}
+
 	// Validation
     public boolean isValid() {
         return sessionId != null && !sessionId.trim().isEmpty() &&
@@ -142,4 +170,10 @@ public class SuggestionRequest {
     
     public Map<String, Object> getMetadata() { return metadata; }
     public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
+    
+    public String getContinuationToken() { return continuationToken; }
+    public void setContinuationToken(String continuationToken) { this.continuationToken = continuationToken; }
+    
+    public String getShardId() { return shardId; }
+    public void setShardId(String shardId) { this.shardId = shardId; }
 }
\ No newline at end of file
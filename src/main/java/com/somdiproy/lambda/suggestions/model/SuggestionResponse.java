@@ -37,6 +37,9 @@ public class SuggestionResponse {
     @JsonProperty("warnings")
     private List<String> warnings;
     
+    @JsonProperty("continuationToken")
+    private String continuationToken;
+    
     // Constructors
     public SuggestionResponse() {}
     
@@ -50,6 +53,7 @@ public class SuggestionResponse {
         this.processingTime = builder.processingTime;
         this.errors = builder.errors;
         this.warnings = builder.warnings;
+        this.continuationToken = builder.continuationToken;
     }
     
     // Builder pattern
@@ -67,6 +71,7 @@ public class SuggestionResponse {
         private ProcessingTime processingTime;
         private List<String> errors;
         private List<String> warnings;
+        private String continuationToken;
         
         public Builder status(String status) { this.status = status; return this; }
         public Builder analysisId(String analysisId) { this.analysisId = analysisId; return this; }
@@ -77,6 +82,7 @@ public class SuggestionResponse {
         public Builder processingTime(ProcessingTime processingTime) { this.processingTime = processingTime; return this; }
         public Builder errors(List<String> errors) { this.errors = errors; return this; }
         public Builder warnings(List<String> warnings) { this.warnings = warnings; return this; }
+        public Builder continuationToken(String continuationToken) { this.continuationToken = continuationToken; return this; }
         
         public SuggestionResponse build() {
             return new SuggestionResponse(this);
@@ -192,4 +198,10 @@ public class SuggestionResponse {
     
     public List<String> getWarnings() { return warnings; }
     public void setWarnings(List<String> warnings) { this.warnings = warnings; }
+    
+    /**
+     * Set when status is "partial": re-send the request with this token to continue
+     */
+    public String getContinuationToken() { return continuationToken; }
+    public void setContinuationToken(String continuationToken) { this.continuationToken = continuationToken; }
 }
\ No newline at end of file
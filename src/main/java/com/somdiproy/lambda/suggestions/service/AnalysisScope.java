@@ -0,0 +1,186 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/AnalysisScope.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scope of one analysis run: the per-issue tasks it forks inherit its deadline and
+ * token budget, and none of them outlives it.
+ *
+ * Once the deadline or the budget is hit the scope is shut down: child threads are
+ * interrupted and the Bedrock calls they registered are cancelled, so nothing keeps
+ * spending tokens after the run has given up. close() shuts the scope down and waits
+ * for the children to exit. An in-house stand-in for StructuredTaskScope, which is
+ * not available on the Java 17 runtime.
+ */
+public final class AnalysisScope implements AutoCloseable {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AnalysisScope.class);
+
+    private static final long CLOSE_JOIN_MS = Long.parseLong(
+            System.getenv().getOrDefault("SCOPE_CLOSE_JOIN_MS", "1000"));
+
+    private final Deadline deadline;
+    private final TokenBudgetLedger ledger;
+    private final Set<Thread> children = ConcurrentHashMap.newKeySet();
+    private final Set<Future<?>> calls = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile String shutdownReason;
+
+    /**
+     * @param deadline deadline every child call is bounded by
+     * @param ledger   token budget child calls reserve from, or null if the run has none
+     */
+    public AnalysisScope(Deadline deadline, TokenBudgetLedger ledger) {
+        this.deadline = deadline;
+        this.ledger = ledger;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public TokenBudgetLedger getLedger() {
+        return ledger;
+    }
+
+    public boolean isShutdown() {
+        return shutdownReason != null;
+    }
+
+    public String getShutdownReason() {
+        return shutdownReason;
+    }
+
+    /**
+     * Wrap a task so that it runs as a child of this scope: it is refused once the scope
+     * is shut down, interrupted when it shuts down while running, and waited for by close()
+     */
+    public <T> Callable<T> child(Callable<T> task) {
+        return () -> {
+            active.incrementAndGet();
+            Thread thread = Thread.currentThread();
+            children.add(thread);
+            try {
+                if (isShutdown()) {
+                    throw new CancellationException("Analysis scope shut down (" + shutdownReason + ")");
+                }
+                return task.call();
+            } finally {
+                children.remove(thread);
+                if (active.decrementAndGet() == 0) {
+                    synchronized (active) {
+                        active.notifyAll();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Register an in-flight call so that shutdown cancels it; a call registered after
+     * shutdown is cancelled right away
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> call) {
+        calls.add(call);
+        call.whenComplete((r, t) -> calls.remove(call));
+        if (isShutdown()) {
+            call.cancel(true);
+        }
+        return call;
+    }
+
+    /**
+     * Throw if the scope has been shut down, so that a child does not start a call
+     */
+    public void ensureOpen() {
+        String reason = shutdownReason;
+        if (reason != null) {
+            throw new ShutdownException(reason);
+        }
+    }
+
+    /**
+     * Shut the scope down: cancel the registered calls and interrupt the other children.
+     * Only the first reason is kept; returns false if the scope was already shut down.
+     */
+    public boolean shutdown(String reason) {
+        synchronized (this) {
+            if (shutdownReason != null) {
+                return false;
+            }
+            shutdownReason = reason;
+        }
+        int cancelled = 0;
+        for (Future<?> call : calls) {
+            if (call.cancel(true)) {
+                cancelled++;
+            }
+        }
+        Thread self = Thread.currentThread();
+        int interrupted = 0;
+        for (Thread child : children) {
+            if (child != self) {
+                child.interrupt();
+                interrupted++;
+            }
+        }
+        if (cancelled > 0 || interrupted > 0) {
+            log.info("Analysis scope shut down ({}): cancelled {} calls, interrupted {} tasks", reason, cancelled,
+                    interrupted);
+        }
+        return true;
+    }
+
+    /**
+     * Wait up to timeoutMs for every child to exit; true if none is left
+     */
+    public boolean join(long timeoutMs) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMs;
+        synchronized (active) {
+            while (active.get() > 0) {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                active.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shut down whatever is still running and wait briefly for it to exit
+     */
+    @Override
+    public void close() {
+        if (active.get() == 0 && calls.isEmpty()) {
+            return;
+        }
+        shutdown("closed");
+        try {
+            if (!join(CLOSE_JOIN_MS)) {
+                log.warn("{} analysis tasks still running {}ms after the scope closed", active.get(), CLOSE_JOIN_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Thrown by a child whose scope was shut down before or during its call
+     */
+    public static class ShutdownException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ShutdownException(String reason) {
+            super("Analysis scope shut down (" + reason + ")");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/AwsClients.java
+package com.somdiproy.lambda.suggestions.service;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SDK clients shared by every service in the container, built once.
+ *
+ * All sync clients run on one pooled Apache HTTP client, so warm invocations reuse
+ * open TLS connections whichever service makes the call. The pool is sized to the
+ * concurrency the function can produce (model calls plus DynamoDB batch writers, plus
+ * a few for progress and cache writes) and keeps connections alive for
+ * HTTP_CONNECTION_TTL_SECONDS; each service bounds its calls with its own timeouts.
+ * The async Bedrock client (async and streaming calls) runs on a Netty client per
+ * region, sized to the model concurrency and recycling connections on the same TTL.
+ *
+ * Region and credentials provider are pinned instead of discovered through the default
+ * chains, which probe system properties, profile files and IMDS on every client build.
+ * Under SnapStart the container credentials endpoint is used, since credentials taken
+ * from the environment at snapshot time would be stale after restore.
+ */
+public final class AwsClients {
+
+    private static final Region DEFAULT_REGION = Region.of(System.getenv().getOrDefault("AWS_REGION", "us-east-1"));
+
+    // Virtual workers are bounded by the rate limits instead of MAX_CONCURRENT_CALLS
+    private static final int MODEL_CONCURRENCY = "virtual"
+            .equalsIgnoreCase(System.getenv().getOrDefault("WORKER_THREADS", "platform"))
+            ? Integer.parseInt(System.getenv().getOrDefault("VIRTUAL_MAX_IN_FLIGHT", "64"))
+            : Integer.parseInt(System.getenv().getOrDefault("MAX_CONCURRENT_CALLS", "4"));
+    private static final int MAX_CONNECTIONS = Integer.parseInt(System.getenv().getOrDefault("HTTP_MAX_CONNECTIONS",
+            String.valueOf(MODEL_CONCURRENCY
+                    + Integer.parseInt(System.getenv().getOrDefault("BATCH_WRITE_CONCURRENCY", "4")) + 4)));
+    private static final Duration CONNECTION_TTL = Duration.ofSeconds(
+            Long.parseLong(System.getenv().getOrDefault("HTTP_CONNECTION_TTL_SECONDS", "300")));
+    private static final Duration CONNECTION_MAX_IDLE = Duration.ofSeconds(60);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMillis(
+            Long.parseLong(System.getenv().getOrDefault("HTTP_CONNECT_TIMEOUT_MS", "2000")));
+    // Non-streaming model calls send nothing until the whole completion is ready
+    private static final Duration MODEL_READ_TIMEOUT = Duration.ofMillis(
+            Long.parseLong(System.getenv().getOrDefault("BEDROCK_READ_TIMEOUT_MS", "120000")));
+    private static final Duration DYNAMODB_ATTEMPT_TIMEOUT = Duration.ofMillis(
+            Long.parseLong(System.getenv().getOrDefault("DYNAMODB_ATTEMPT_TIMEOUT_MS", "2000")));
+    private static final Duration DYNAMODB_CALL_TIMEOUT = Duration.ofMillis(
+            Long.parseLong(System.getenv().getOrDefault("DYNAMODB_CALL_TIMEOUT_MS", "10000")));
+
+    private static final AwsCredentialsProvider CREDENTIALS = credentialsProvider();
+    private static volatile SdkHttpClient httpClient;
+    private static final Map<Region, BedrockRuntimeClient> bedrockClients = new ConcurrentHashMap<>();
+    private static final Map<Region, BedrockRuntimeAsyncClient> bedrockAsyncClients = new ConcurrentHashMap<>();
+    private static volatile DynamoDbClient dynamoDbClient;
+
+    private AwsClients() {
+    }
+
+    public static BedrockRuntimeClient bedrock(String region) {
+        return bedrockClients.computeIfAbsent(region(region), r -> BedrockRuntimeClient.builder().region(r)
+                .credentialsProvider(CREDENTIALS).httpClient(httpClient()).build());
+    }
+
+    public static BedrockRuntimeAsyncClient bedrockAsync(String region) {
+        return bedrockAsyncClients.computeIfAbsent(region(region), r -> BedrockRuntimeAsyncClient.builder()
+                .region(r).credentialsProvider(CREDENTIALS).httpClientBuilder(asyncHttpClient()).build());
+    }
+
+    public static DynamoDbClient dynamoDb() {
+        DynamoDbClient client = dynamoDbClient;
+        if (client == null) {
+            synchronized (AwsClients.class) {
+                client = dynamoDbClient;
+                if (client == null) {
+                    client = DynamoDbClient.builder().region(DEFAULT_REGION).credentialsProvider(CREDENTIALS)
+                            .httpClient(httpClient())
+                            .overrideConfiguration(ClientOverrideConfiguration.builder()
+                                    .apiCallAttemptTimeout(DYNAMODB_ATTEMPT_TIMEOUT)
+                                    .apiCallTimeout(DYNAMODB_CALL_TIMEOUT).build())
+                            .build();
+                    dynamoDbClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * The pooled HTTP client behind every sync SDK client
+     */
+    static SdkHttpClient httpClient() {
+        SdkHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (AwsClients.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = ApacheHttpClient.builder()
+                            .maxConnections(MAX_CONNECTIONS)
+                            .tcpKeepAlive(true)
+                            .connectionTimeToLive(CONNECTION_TTL)
+                            .connectionMaxIdleTime(CONNECTION_MAX_IDLE)
+                            .useIdleConnectionReaper(true)
+                            .connectionTimeout(CONNECT_TIMEOUT)
+                            .connectionAcquisitionTimeout(CONNECT_TIMEOUT)
+                            .socketTimeout(MODEL_READ_TIMEOUT)
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Netty settings for the async Bedrock clients. Each client builds and owns its own
+     * Netty client from this, so closing the SDK client releases its event loop.
+     */
+    private static NettyNioAsyncHttpClient.Builder asyncHttpClient() {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(MODEL_CONCURRENCY)
+                .tcpKeepAlive(true)
+                .connectionTimeToLive(CONNECTION_TTL)
+                .connectionMaxIdleTime(CONNECTION_MAX_IDLE)
+                .useIdleConnectionReaper(true)
+                .connectionTimeout(CONNECT_TIMEOUT)
+                .connectionAcquisitionTimeout(CONNECT_TIMEOUT)
+                .readTimeout(MODEL_READ_TIMEOUT);
+    }
+
+    /**
+     * Release every client (the async ones hold a Netty event loop) and the shared HTTP
+     * pool on container shutdown. SDK clients do not close an HTTP client they were given.
+     */
+    public static synchronized void closeAll() {
+        bedrockAsyncClients.values().forEach(BedrockRuntimeAsyncClient::close);
+        bedrockAsyncClients.clear();
+        bedrockClients.values().forEach(BedrockRuntimeClient::close);
+        bedrockClients.clear();
+        if (dynamoDbClient != null) {
+            dynamoDbClient.close();
+            dynamoDbClient = null;
+        }
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+        }
+    }
+
+    private static Region region(String region) {
+        return region != null && !region.isBlank() ? Region.of(region) : DEFAULT_REGION;
+    }
+
+    private static AwsCredentialsProvider credentialsProvider() {
+        if (System.getenv("AWS_CONTAINER_CREDENTIALS_FULL_URI") != null) {
+            return ContainerCredentialsProvider.builder().build();
+        }
+        if (System.getenv("AWS_ACCESS_KEY_ID") != null) {
+            return EnvironmentVariableCredentialsProvider.create();
+        }
+        // Local runs: profiles, SSO and the like
+        return DefaultCredentialsProvider.create();
+    }
+}
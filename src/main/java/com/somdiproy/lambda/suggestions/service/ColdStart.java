@@ -0,0 +1,134 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/ColdStart.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Init-phase priming and cold start measurement.
+ *
+ * With SnapStart (org.crac on the classpath) the primer runs in a beforeCheckpoint hook,
+ * followed by the warmer, which makes remote calls so that the snapshot also holds an
+ * initialized HTTP, TLS and signing stack, all at no cost to invocations. Connections
+ * the warmer opened may be stale after restore; the pool's idle reaper and max idle
+ * time retire them. Without SnapStart priming would only lengthen init, so it is skipped
+ * unless COLD_START_PRIMING=true, and the warmer never runs at init;
+ * COLD_START_PRIMING=false skips the hook as well. With the "coldStart" metadata of the
+ * first invocation that gives the comparison. The hook is registered reflectively so
+ * the function builds without org.crac.
+ */
+public final class ColdStart {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ColdStart.class);
+
+    // Unset: prime before a SnapStart checkpoint only; "true": also at init without SnapStart
+    private static final String PRIMING = System.getenv().getOrDefault("COLD_START_PRIMING", "snapstart");
+    private static final boolean PRIMING_ENABLED = !"false".equalsIgnoreCase(PRIMING);
+    private static final boolean PRIME_AT_INIT = "true".equalsIgnoreCase(PRIMING);
+
+    private static volatile long initMs = -1;
+    private static volatile boolean primed;
+    private static volatile long primingMs = -1;
+    private static volatile boolean snapStart;
+    private static volatile long restoredAt;
+    private static final AtomicBoolean firstInvocation = new AtomicBoolean(true);
+
+    // CRaC only keeps weak references to registered resources
+    private static Object checkpointHook;
+
+    private ColdStart() {
+    }
+
+    /**
+     * Called once init is done
+     *
+     * @param initStartedAt when init started (handler construction)
+     * @param primer        exercises the hot paths without side effects
+     * @param warmer         makes the remote calls that warm the SDK clients, before a checkpoint only
+     */
+    public static synchronized void initialized(long initStartedAt, Runnable primer, Runnable warmer) {
+        if (PRIMING_ENABLED) {
+            snapStart = registerCheckpointHook(primer, warmer);
+            if (!snapStart && PRIME_AT_INIT) {
+                prime(primer);
+            }
+        }
+        initMs = System.currentTimeMillis() - initStartedAt;
+        log.info("Init finished in {}ms (priming {}, snapStart {})", initMs,
+                primed ? primingMs + "ms" : snapStart ? "at checkpoint" : "skipped", snapStart);
+    }
+
+    /**
+     * Cold start figures for the first invocation after init or restore, null afterwards
+     */
+    public static Map<String, Object> firstInvocation() {
+        if (!firstInvocation.getAndSet(false)) {
+            return null;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("initMs", initMs);
+        stats.put("primed", primed);
+        stats.put("primingMs", primingMs);
+        stats.put("snapStart", snapStart);
+        if (restoredAt > 0) {
+            stats.put("sinceRestoreMs", System.currentTimeMillis() - restoredAt);
+        }
+        return stats;
+    }
+
+    private static void prime(Runnable primer) {
+        long start = System.currentTimeMillis();
+        try {
+            primer.run();
+        } catch (RuntimeException e) {
+            log.warn("Priming failed, continuing unprimed: {}", e.getMessage());
+        }
+        primingMs = System.currentTimeMillis() - start;
+        primed = true;
+    }
+
+    private static boolean registerCheckpointHook(Runnable primer, Runnable warmer) {
+        try {
+            Class<?> resource = Class.forName("org.crac.Resource");
+            Class<?> context = Class.forName("org.crac.Context");
+            Object global = Class.forName("org.crac.Core").getMethod("getGlobalContext").invoke(null);
+
+            InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "beforeCheckpoint" -> prime(() -> {
+                    primer.run();
+                    warmer.run();
+                });
+                case "afterRestore" -> {
+                    restoredAt = System.currentTimeMillis();
+                    firstInvocation.set(true);
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "toString" -> {
+                    return "ColdStart priming hook";
+                }
+                default -> {
+                }
+                }
+                return null;
+            };
+            checkpointHook = Proxy.newProxyInstance(ColdStart.class.getClassLoader(), new Class<?>[] { resource },
+                    handler);
+            context.getMethod("register", resource).invoke(global, checkpointHook);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Could not register the checkpoint hook, priming now: {}", e.getMessage());
+            return false;
+        }
+    }
+}
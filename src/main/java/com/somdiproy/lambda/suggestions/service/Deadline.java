@@ -0,0 +1,63 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/Deadline.java
+package com.somdiproy.lambda.suggestions.service;
+
+/**
+ * Absolute point in time by which a unit of work must have finished.
+ *
+ * Created once from the remaining Lambda time and handed down to every model call, so
+ * each layer (rate-limit wait, SDK call timeout, retry backoff) budgets against the
+ * same instant instead of its own relative timeout.
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long expiresAtMillis;
+
+    private Deadline(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * No deadline: remainingMillis() is Long.MAX_VALUE
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public static Deadline at(long epochMillis) {
+        return new Deadline(epochMillis);
+    }
+
+    public static Deadline in(long millis) {
+        return new Deadline(System.currentTimeMillis() + Math.max(0L, millis));
+    }
+
+    public boolean isBounded() {
+        return expiresAtMillis != Long.MAX_VALUE;
+    }
+
+    public long remainingMillis() {
+        return isBounded() ? Math.max(0L, expiresAtMillis - System.currentTimeMillis()) : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() == 0L;
+    }
+
+    /**
+     * Whether work expected to take millis can still finish in time
+     */
+    public boolean allows(long millis) {
+        return remainingMillis() >= millis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return isBounded() ? "Deadline[" + remainingMillis() + "ms left]" : "Deadline[none]";
+    }
+}
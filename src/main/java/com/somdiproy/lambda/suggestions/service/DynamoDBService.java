@@ -1,14 +1,23 @@
 // src/main/java/com/somdiproy/lambda/suggestions/service/DynamoDBService.java
 package com.somdiproy.lambda.suggestions.service;
 
+import com.somdiproy.lambda.suggestions.model.AnalysisCheckpoint;
 import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Service for storing suggestions in DynamoDB
@@ -18,7 +27,6 @@ public class DynamoDBService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DynamoDBService.class);
     
     private final DynamoDbClient dynamoDbClient;
-    private final ObjectMapper objectMapper;
     
     // Table names - fallback to default names if env vars not set
     private static final String ANALYSIS_RESULTS_TABLE = 
@@ -29,9 +37,55 @@ public class DynamoDBService {
         System.getenv("ISSUE_DETAILS_TABLE") != null ? 
         System.getenv("ISSUE_DETAILS_TABLE") : "smartcode-issue-details";
     
+    // BatchWriteItem configuration
+    private static final int BATCH_WRITE_MAX_ITEMS = 25; // DynamoDB hard limit per request
+    private static final int BATCH_WRITE_MAX_RETRIES = 6;
+    private static final long BATCH_WRITE_BASE_DELAY_MS = 50;
+    private static final long BATCH_WRITE_MAX_DELAY_MS = 2000;
+    private static final int BATCH_WRITE_CONCURRENCY = Integer.parseInt(
+        System.getenv().getOrDefault("BATCH_WRITE_CONCURRENCY", "4"));
+    
+    // Shared across warm invocations; daemon threads so they never block container shutdown
+    private static final ExecutorService batchWriteExecutor = Executors.newFixedThreadPool(BATCH_WRITE_CONCURRENCY, r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("dynamodb-batch-writer-" + t.getId());
+        return t;
+    });
+    
     public DynamoDBService() {
-        this.dynamoDbClient = DynamoDbClient.builder().build();
-        this.objectMapper = new ObjectMapper();
+        this.dynamoDbClient = AwsClients.dynamoDb();
+    }
+    
+    /**
+     * Load the request model classes without a remote call
+     */
+    public void prime() {
+        try {
+            GetItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s("__prime__").build()))
+                .projectionExpression("analysisId")
+                .build();
+        } catch (Exception e) {
+            log.warn("DynamoDB priming incomplete: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Exercise marshalling and the HTTP, TLS and signing stack with a read of a key that
+     * does not exist; for the SnapStart checkpoint only
+     */
+    public void warmUp() {
+        try {
+            dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s("__prime__").build()))
+                .projectionExpression("analysisId")
+                .build());
+        } catch (Exception e) {
+            log.warn("DynamoDB warm-up incomplete: {}", e.getMessage());
+        }
     }
     
     /**
@@ -44,12 +98,11 @@ public class DynamoDBService {
             // Update analysis results with suggestion summary
             updateAnalysisResults(analysisId, sessionId, suggestions.size(), totalTokens, totalCost);
             
-            // Store individual suggestions
-            for (DeveloperSuggestion suggestion : suggestions) {
-                storeIndividualSuggestion(analysisId, suggestion);
-            }
+            // Store individual suggestions in 25-item batches written in parallel
+            BatchWriteSummary summary = writeSuggestionItems(analysisId, suggestions);
             
-            log.info("Successfully stored {} suggestions for analysis {}", suggestions.size(), analysisId);
+            log.info("Stored {}/{} suggestions for analysis {} in {} batch requests ({} ms)",
+                summary.written, suggestions.size(), analysisId, summary.batches, summary.elapsedMs);
             
         } catch (Exception e) {
             log.error("Failed to store suggestions for analysis {}: {}", analysisId, e.getMessage(), e);
@@ -57,11 +110,53 @@ public class DynamoDBService {
         }
     }
     
+    /**
+     * Persist a group of suggestions without touching the analysis summary.
+     * Used by the incremental writer; returns the number of items written.
+     */
+    public int writeSuggestions(String analysisId, List<DeveloperSuggestion> suggestions) {
+        if (suggestions.isEmpty()) {
+            return 0;
+        }
+        return writeSuggestionItems(analysisId, suggestions).written;
+    }
+    
+    /**
+     * Delete the suggestion items of the given issues, e.g. partial suggestions whose
+     * final suggestion never came. Returns the number of items deleted.
+     */
+    public int deleteSuggestions(String analysisId, Collection<String> issueIds) {
+        List<WriteRequest> deletes = new ArrayList<>(issueIds.size());
+        for (String issueId : issueIds) {
+            deletes.add(WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(Map.of(
+                "analysisId", AttributeValue.builder().s(analysisId).build(),
+                "issueId", AttributeValue.builder().s(issueId).build()
+            )).build()).build());
+        }
+        
+        int deleted = 0;
+        int batchCount = (deletes.size() + BATCH_WRITE_MAX_ITEMS - 1) / BATCH_WRITE_MAX_ITEMS;
+        for (int i = 0; i < batchCount; i++) {
+            deleted += writeBatchWithRetry(deletes.subList(i * BATCH_WRITE_MAX_ITEMS,
+                Math.min((i + 1) * BATCH_WRITE_MAX_ITEMS, deletes.size())), i + 1, batchCount);
+        }
+        return deleted;
+    }
+    
     /**
      * Update analysis progress status
      * Used to track progress during different stages of analysis
      */
     public void updateAnalysisProgress(String analysisId, String status, int suggestionCount) {
+        updateAnalysisProgress(analysisId, status, suggestionCount, -1, -1);
+    }
+    
+    /**
+     * Update analysis progress with real counts: completed issues out of total.
+     * When a total is given the percentage is derived from the counts instead of the status.
+     */
+    public void updateAnalysisProgress(String analysisId, String status, int suggestionCount,
+                                       int completedIssues, int totalIssues) {
         try {
             Map<String, AttributeValue> key = Map.of(
                 "analysisId", AttributeValue.builder().s(analysisId).build()
@@ -89,8 +184,22 @@ public class DynamoDBService {
                     .build());
             }
             
+            // Real completed/total counts when available
+            if (totalIssues > 0) {
+                updates.put("suggestionsCompleted", AttributeValueUpdate.builder()
+                    .value(AttributeValue.builder().n(String.valueOf(completedIssues)).build())
+                    .action(AttributeAction.PUT)
+                    .build());
+                updates.put("suggestionsTotal", AttributeValueUpdate.builder()
+                    .value(AttributeValue.builder().n(String.valueOf(totalIssues)).build())
+                    .action(AttributeAction.PUT)
+                    .build());
+            }
+            
             // Calculate and update progress percentage
-            int progressPercentage = calculateProgressPercentage(status);
+            int progressPercentage = totalIssues > 0
+                ? calculateProgressPercentage(completedIssues, totalIssues)
+                : calculateProgressPercentage(status);
             updates.put("progressPercentage", AttributeValueUpdate.builder()
                 .value(AttributeValue.builder().n(String.valueOf(progressPercentage)).build())
                 .action(AttributeAction.PUT)
@@ -103,7 +212,8 @@ public class DynamoDBService {
                 .build();
             
             dynamoDbClient.updateItem(request);
-            log.info("Updated analysis progress for analysisId: {} to status: {}", analysisId, status);
+            log.info("Updated analysis progress for analysisId: {} to status: {} ({}%)", analysisId, status,
+                progressPercentage);
             
         } catch (Exception e) {
             log.error("Failed to update analysis progress: {}", e.getMessage(), e);
@@ -114,7 +224,7 @@ public class DynamoDBService {
     /**
      * Update analysis results table with suggestion summary
      */
-    private void updateAnalysisResults(String analysisId, String sessionId, 
+    public void updateAnalysisResults(String analysisId, String sessionId, 
                                      int suggestionCount, int totalTokens, double totalCost) {
         try {
             Map<String, AttributeValue> key = Map.of(
@@ -162,9 +272,287 @@ public class DynamoDBService {
     }
     
     /**
-     * Store individual suggestion in issue details table
+     * Record the progress of one invocation of a multi-invocation analysis on its
+     * analysis record. The first segment replaces any earlier checkpoint; later segments
+     * add their processed issue IDs to it. Counts, tokens and cost are the analysis totals
+     * so far and are written as they are, so a retried invocation does not count its
+     * segment twice.
+     */
+    public void saveCheckpoint(String analysisId, Collection<String> processedIssueIds, int segment,
+                               int suggestionCount, int totalTokens, double totalCost) {
+        // Adding to a string set is idempotent, adding to a number is not
+        AttributeAction action = segment <= 1 ? AttributeAction.PUT : AttributeAction.ADD;
+        try {
+            Map<String, AttributeValue> key = Map.of(
+                "analysisId", AttributeValue.builder().s(analysisId).build()
+            );
+            
+            Map<String, AttributeValueUpdate> updates = new HashMap<>();
+            
+            // Empty string sets are not allowed
+            if (!processedIssueIds.isEmpty()) {
+                updates.put("processedIssueIds", AttributeValueUpdate.builder()
+                    .value(AttributeValue.builder().ss(processedIssueIds).build())
+                    .action(action)
+                    .build());
+            }
+            
+            updates.put("checkpointSuggestions", AttributeValueUpdate.builder()
+                .value(AttributeValue.builder().n(String.valueOf(suggestionCount)).build())
+                .action(AttributeAction.PUT)
+                .build());
+            
+            updates.put("checkpointTokens", AttributeValueUpdate.builder()
+                .value(AttributeValue.builder().n(String.valueOf(totalTokens)).build())
+                .action(AttributeAction.PUT)
+                .build());
+            
+            updates.put("checkpointCost", AttributeValueUpdate.builder()
+                .value(AttributeValue.builder().n(String.valueOf(totalCost)).build())
+                .action(AttributeAction.PUT)
+                .build());
+            
+            updates.put("checkpointSegment", AttributeValueUpdate.builder()
+                .value(AttributeValue.builder().n(String.valueOf(segment)).build())
+                .action(AttributeAction.PUT)
+                .build());
+            
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(key)
+                .attributeUpdates(updates)
+                .build());
+            log.info("Saved checkpoint for analysis {}: segment {}, {} issues processed", analysisId, segment,
+                processedIssueIds.size());
+            
+        } catch (Exception e) {
+            // Without a checkpoint the next segment re-processes these issues; costly but correct
+            log.error("Failed to save checkpoint for analysis {}: {}", analysisId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Read the checkpoint of an analysis, or an empty one if there is none
+     */
+    public AnalysisCheckpoint loadCheckpoint(String analysisId) {
+        try {
+            Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s(analysisId).build()))
+                .projectionExpression("processedIssueIds, checkpointSegment, checkpointSuggestions, "
+                    + "checkpointTokens, checkpointCost")
+                .consistentRead(true)
+                .build()).item();
+            if (item == null || !item.containsKey("checkpointSegment")) {
+                return AnalysisCheckpoint.empty();
+            }
+            
+            AttributeValue ids = item.get("processedIssueIds");
+            return new AnalysisCheckpoint(
+                ids != null && ids.hasSs() ? new HashSet<>(ids.ss()) : Set.of(),
+                numberAttribute(item, "checkpointSegment").intValue(),
+                numberAttribute(item, "checkpointSuggestions").intValue(),
+                numberAttribute(item, "checkpointTokens").intValue(),
+                numberAttribute(item, "checkpointCost").doubleValue());
+            
+        } catch (Exception e) {
+            log.error("Failed to load checkpoint for analysis {}: {}", analysisId, e.getMessage(), e);
+            return AnalysisCheckpoint.empty();
+        }
+    }
+    
+    /**
+     * Remove the checkpoint attributes once the analysis has completed
+     */
+    public void clearCheckpoint(String analysisId) {
+        try {
+            Map<String, AttributeValueUpdate> updates = new HashMap<>();
+            for (String attribute : List.of("processedIssueIds", "checkpointSegment", "checkpointSuggestions",
+                    "checkpointTokens", "checkpointCost")) {
+                updates.put(attribute, AttributeValueUpdate.builder().action(AttributeAction.DELETE).build());
+            }
+            
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s(analysisId).build()))
+                .attributeUpdates(updates)
+                .build());
+            
+        } catch (Exception e) {
+            log.warn("Failed to clear checkpoint for analysis {}: {}", analysisId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Set the shared token budget of a fanned-out analysis, once: a resumed or retried
+     * coordinator keeps whatever is left of it instead of starting over.
+     * Returns true if the budget was set by this call.
+     */
+    public boolean initTokenBudget(String analysisId, long tokens) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s(analysisId).build()))
+                .updateExpression("SET tokenBudgetRemaining = :tokens")
+                .conditionExpression("attribute_not_exists(tokenBudgetRemaining)")
+                .expressionAttributeValues(Map.of(":tokens", AttributeValue.builder().n(String.valueOf(tokens)).build()))
+                .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            log.info("Token budget of analysis {} already initialized, keeping what is left", analysisId);
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to initialize token budget for analysis {}: {}", analysisId, e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Take tokens from the shared budget if it still covers them (conditional decrement).
+     * Returns false when the budget is exhausted or has not been initialized.
+     */
+    public boolean reserveTokens(String analysisId, long tokens) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s(analysisId).build()))
+                .updateExpression("ADD tokenBudgetRemaining :delta")
+                .conditionExpression("tokenBudgetRemaining >= :tokens")
+                .expressionAttributeValues(Map.of(
+                    ":delta", AttributeValue.builder().n(String.valueOf(-tokens)).build(),
+                    ":tokens", AttributeValue.builder().n(String.valueOf(tokens)).build()))
+                .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        } catch (Exception e) {
+            // Fail closed: spending without a reservation could overrun the analysis budget
+            log.error("Failed to reserve {} tokens for analysis {}: {}", tokens, analysisId, e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Give tokens back to (positive) or charge extra tokens against (negative) the shared budget
+     */
+    public void adjustTokenBudget(String analysisId, long delta) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName(ANALYSIS_RESULTS_TABLE)
+                .key(Map.of("analysisId", AttributeValue.builder().s(analysisId).build()))
+                .updateExpression("ADD tokenBudgetRemaining :delta")
+                .expressionAttributeValues(Map.of(":delta", AttributeValue.builder().n(String.valueOf(delta)).build()))
+                .build());
+        } catch (Exception e) {
+            log.warn("Failed to adjust token budget of analysis {} by {}: {}", analysisId, delta, e.getMessage());
+        }
+    }
+    
+    private static java.math.BigDecimal numberAttribute(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null && value.n() != null ? new java.math.BigDecimal(value.n()) : java.math.BigDecimal.ZERO;
+    }
+    
+    /**
+     * Write suggestion items with BatchWriteItem: ceil(N/25) requests issued concurrently,
+     * each retrying its UnprocessedItems with jittered exponential backoff
+     */
+    private BatchWriteSummary writeSuggestionItems(String analysisId, List<DeveloperSuggestion> suggestions) {
+        long start = System.currentTimeMillis();
+        
+        // BatchWriteItem rejects duplicate keys within one request; last suggestion per issue wins
+        Map<String, Map<String, AttributeValue>> itemsByIssue = new LinkedHashMap<>();
+        for (DeveloperSuggestion suggestion : suggestions) {
+            Map<String, AttributeValue> item = buildSuggestionItem(analysisId, suggestion);
+            if (item != null) {
+                itemsByIssue.put(suggestion.getIssueId(), item);
+            }
+        }
+        
+        List<WriteRequest> writes = new ArrayList<>(itemsByIssue.size());
+        for (Map<String, AttributeValue> item : itemsByIssue.values()) {
+            writes.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+        }
+        
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        int batchCount = (writes.size() + BATCH_WRITE_MAX_ITEMS - 1) / BATCH_WRITE_MAX_ITEMS;
+        for (int i = 0; i < batchCount; i++) {
+            List<WriteRequest> chunk = writes.subList(i * BATCH_WRITE_MAX_ITEMS,
+                Math.min((i + 1) * BATCH_WRITE_MAX_ITEMS, writes.size()));
+            int batchNumber = i + 1;
+            batches.add(CompletableFuture.supplyAsync(
+                () -> writeBatchWithRetry(chunk, batchNumber, batchCount), batchWriteExecutor));
+        }
+        
+        int written = 0;
+        for (CompletableFuture<Integer> batch : batches) {
+            written += batch.join();
+        }
+        
+        return new BatchWriteSummary(written, batchCount, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Write one batch, retrying unprocessed items. Returns the number of items persisted.
+     */
+    private int writeBatchWithRetry(List<WriteRequest> chunk, int batchNumber, int batchCount) {
+        long start = System.currentTimeMillis();
+        List<WriteRequest> pending = chunk;
+        int attempt = 0;
+        
+        while (!pending.isEmpty()) {
+            try {
+                BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(ISSUE_DETAILS_TABLE, pending))
+                    .build());
+                
+                List<WriteRequest> unprocessed = response.hasUnprocessedItems()
+                    ? response.unprocessedItems().getOrDefault(ISSUE_DETAILS_TABLE, List.of())
+                    : List.of();
+                pending = unprocessed;
+                
+            } catch (ProvisionedThroughputExceededException | RequestLimitExceededException e) {
+                log.warn("Batch {}/{} throttled on attempt {}: {}", batchNumber, batchCount, attempt + 1, e.getMessage());
+            } catch (Exception e) {
+                log.error("Batch {}/{} failed: {}", batchNumber, batchCount, e.getMessage());
+                break;
+            }
+            
+            if (pending.isEmpty()) {
+                break;
+            }
+            if (++attempt > BATCH_WRITE_MAX_RETRIES) {
+                log.error("Batch {}/{} gave up with {} unprocessed items after {} retries",
+                    batchNumber, batchCount, pending.size(), BATCH_WRITE_MAX_RETRIES);
+                break;
+            }
+            
+            try {
+                Thread.sleep(calculateBatchRetryDelay(attempt));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        
+        int written = chunk.size() - pending.size();
+        log.info("DYNAMODB_BATCH_METRIC|Batch:{}/{}|Items:{}|Written:{}|Retries:{}|LatencyMs:{}",
+            batchNumber, batchCount, chunk.size(), written, attempt, System.currentTimeMillis() - start);
+        return written;
+    }
+    
+    /**
+     * Exponential backoff with full jitter for UnprocessedItems retries
+     */
+    private long calculateBatchRetryDelay(int attempt) {
+        long ceiling = Math.min(BATCH_WRITE_MAX_DELAY_MS, BATCH_WRITE_BASE_DELAY_MS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(BATCH_WRITE_BASE_DELAY_MS, ceiling + 1);
+    }
+    
+    /**
+     * Build the issue details item for a suggestion
      */
-    private void storeIndividualSuggestion(String analysisId, DeveloperSuggestion suggestion) {
+    private Map<String, AttributeValue> buildSuggestionItem(String analysisId, DeveloperSuggestion suggestion) {
         try {
             Map<String, AttributeValue> item = new HashMap<>();
             item.put("analysisId", AttributeValue.builder().s(analysisId).build());
@@ -226,19 +614,71 @@ public class DynamoDBService {
                 suggestion.getModelUsed() : "nova-lite").build());
             item.put("timestamp", AttributeValue.builder().n(String.valueOf(System.currentTimeMillis())).build());
             
-            PutItemRequest request = PutItemRequest.builder()
-                .tableName(ISSUE_DETAILS_TABLE)
-                .item(item)
+            return item;
+            
+        } catch (Exception e) {
+            log.error("Failed to build item for issue {}: {}", suggestion.getIssueId(), e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Read a cached suggestion payload, ignoring entries whose TTL already passed
+     * (DynamoDB TTL deletion is lazy, so expired items can still be returned)
+     */
+    public String getCachedSuggestion(String tableName, String cacheKey) {
+        try {
+            GetItemRequest request = GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("cacheKey", AttributeValue.builder().s(cacheKey).build()))
                 .build();
             
-            dynamoDbClient.putItem(request);
-            log.debug("Stored suggestion for issue: {}", suggestion.getIssueId());
+            Map<String, AttributeValue> item = dynamoDbClient.getItem(request).item();
+            if (item == null || item.isEmpty() || !item.containsKey("suggestion")) {
+                return null;
+            }
+            
+            AttributeValue ttl = item.get("ttl");
+            if (ttl != null && ttl.n() != null && Long.parseLong(ttl.n()) < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return item.get("suggestion").s();
+            
+        } catch (Exception e) {
+            log.warn("Failed to read suggestion cache entry {}: {}", cacheKey, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Write a suggestion payload to the cache table with a TTL (epoch seconds)
+     */
+    public void putCachedSuggestion(String tableName, String cacheKey, String payload, long ttlEpochSeconds) {
+        try {
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("cacheKey", AttributeValue.builder().s(cacheKey).build());
+            item.put("suggestion", AttributeValue.builder().s(payload).build());
+            item.put("ttl", AttributeValue.builder().n(String.valueOf(ttlEpochSeconds)).build());
+            item.put("createdAt", AttributeValue.builder().n(String.valueOf(System.currentTimeMillis())).build());
+            
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(tableName)
+                .item(item)
+                .build());
             
         } catch (Exception e) {
-            log.error("Failed to store suggestion for issue {}: {}", suggestion.getIssueId(), e.getMessage());
+            log.warn("Failed to write suggestion cache entry {}: {}", cacheKey, e.getMessage());
         }
     }
     
+    /**
+     * Suggestions stage spans 70-100% of the overall analysis; place the real counts in that range
+     */
+    private int calculateProgressPercentage(int completedIssues, int totalIssues) {
+        double fraction = Math.min(1.0, (double) completedIssues / totalIssues);
+        return 70 + (int) Math.floor(fraction * 30);
+    }
+    
     /**
      * Calculate progress percentage based on status
      */
@@ -255,4 +695,19 @@ public class DynamoDBService {
                 return 75; // Default for unknown status
         }
     }
+    
+    /**
+     * Outcome of a bulk suggestion write
+     */
+    private static class BatchWriteSummary {
+        final int written;
+        final int batches;
+        final long elapsedMs;
+        
+        BatchWriteSummary(int written, int batches, long elapsedMs) {
+            this.written = written;
+            this.batches = batches;
+            this.elapsedMs = elapsedMs;
+        }
+    }
 }
\ No newline at end of file
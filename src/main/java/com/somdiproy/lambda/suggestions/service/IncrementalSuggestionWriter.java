@@ -0,0 +1,250 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/IncrementalSuggestionWriter.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background sink that persists suggestions while the analysis is still running.
+ *
+ * Suggestions are queued as soon as they are parsed; a single writer thread coalesces
+ * them into batch writes (up to 25 items, or whatever arrived within the linger time)
+ * and publishes the real completed/total progress after every flush. A timeout or
+ * crash late in the run therefore only loses what is still in the queue.
+ *
+ * Partial suggestions (e.g. only immediateFix while the model is still streaming) are
+ * written under the same issue key and overwritten by the final suggestion; they do
+ * not count towards progress. A partial whose final suggestion does not come (the call
+ * failed or the issue was carried over) is deleted again, at the latest on close.
+ */
+public class IncrementalSuggestionWriter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(IncrementalSuggestionWriter.class);
+
+    private static final int MAX_BATCH_ITEMS = 25;
+    private static final long LINGER_MS = Long.parseLong(System.getenv().getOrDefault("WRITE_LINGER_MS", "250"));
+
+    private final DynamoDBService dynamoDBService;
+    private final String analysisId;
+    private final int totalIssues;
+    private final int alreadyCompleted;
+    private final int alreadySuggested;
+    private final boolean publishProgress;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final AtomicInteger submitted = new AtomicInteger();
+    // Issues with a partial suggestion written or queued but no final one yet
+    private final Set<String> partials = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+    private volatile int persisted;
+    private volatile int flushes;
+
+    public IncrementalSuggestionWriter(DynamoDBService dynamoDBService, String analysisId, int totalIssues) {
+        this(dynamoDBService, analysisId, 0, 0, totalIssues);
+    }
+
+    /**
+     * Writer for a resumed analysis: progress counts the issues completed and the
+     * suggestions stored by earlier invocations towards the analysis totals
+     */
+    public IncrementalSuggestionWriter(DynamoDBService dynamoDBService, String analysisId, int alreadyCompleted,
+                                       int alreadySuggested, int totalIssues) {
+        this(dynamoDBService, analysisId, alreadyCompleted, alreadySuggested, totalIssues, true);
+    }
+
+    private IncrementalSuggestionWriter(DynamoDBService dynamoDBService, String analysisId, int alreadyCompleted,
+                                        int alreadySuggested, int totalIssues, boolean publishProgress) {
+        this.dynamoDBService = dynamoDBService;
+        this.analysisId = analysisId;
+        this.alreadyCompleted = alreadyCompleted;
+        this.alreadySuggested = alreadySuggested;
+        this.totalIssues = totalIssues;
+        this.publishProgress = publishProgress;
+        this.writerThread = new Thread(this::drainLoop, "suggestion-writer-" + analysisId);
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Writer that only persists suggestions, for shard workers whose coordinator owns
+     * the analysis progress
+     */
+    public static IncrementalSuggestionWriter persistOnly(DynamoDBService dynamoDBService, String analysisId) {
+        return new IncrementalSuggestionWriter(dynamoDBService, analysisId, 0, 0, 0, false);
+    }
+
+    /**
+     * Publish the starting progress and start the writer thread
+     */
+    public IncrementalSuggestionWriter start() {
+        if (publishProgress) {
+            dynamoDBService.updateAnalysisProgress(analysisId, "suggestions_in_progress", alreadySuggested,
+                    alreadyCompleted, totalIssues);
+        }
+        writerThread.start();
+        return this;
+    }
+
+    /**
+     * Queue a suggestion for persistence, never blocks the caller
+     */
+    public void submit(DeveloperSuggestion suggestion) {
+        if (closed) {
+            log.warn("Writer for {} already closed, dropping suggestion {}", analysisId, suggestion.getIssueId());
+            return;
+        }
+        submitted.incrementAndGet();
+        partials.remove(suggestion.getIssueId());
+        queue.offer(new PendingWrite(suggestion.getIssueId(), suggestion, false));
+    }
+
+    /**
+     * Queue an incomplete suggestion that the final one for the same issue will replace
+     */
+    public void submitPartial(DeveloperSuggestion suggestion) {
+        if (!closed) {
+            partials.add(suggestion.getIssueId());
+            queue.offer(new PendingWrite(suggestion.getIssueId(), suggestion, true));
+        }
+    }
+
+    /**
+     * Queue the deletion of the issue's partial suggestion because no final one will
+     * replace it; does nothing if no partial was submitted for the issue
+     */
+    public void retractPartial(String issueId) {
+        if (!closed && partials.remove(issueId)) {
+            queue.offer(new PendingWrite(issueId, null, false));
+        }
+    }
+
+    /**
+     * Stop accepting suggestions and wait (bounded) for the queue to be flushed.
+     * Returns the number of suggestions persisted.
+     */
+    public int close(long timeoutMs) {
+        // Partials left without a final suggestion must not outlive the run
+        for (String issueId : partials) {
+            retractPartial(issueId);
+        }
+        closed = true;
+        try {
+            writerThread.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Writer for {} did not finish within {}ms, {} suggestions still queued", analysisId, timeoutMs,
+                    queue.size());
+            writerThread.interrupt();
+        }
+        log.info("Incremental writer for {}: {} submitted, {} persisted in {} flushes", analysisId,
+                submitted.get(), persisted, flushes);
+        return persisted;
+    }
+
+    public int getPersistedCount() {
+        return persisted;
+    }
+
+    private void drainLoop() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_ITEMS);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(LINGER_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Coalesce whatever else arrives within the linger window
+                long lingerDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+                while (batch.size() < MAX_BATCH_ITEMS) {
+                    long remaining = lingerDeadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 && !closed
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        // The last write queued for an issue supersedes the earlier ones
+        Map<String, PendingWrite> latest = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            latest.put(write.issueId, write);
+        }
+        List<DeveloperSuggestion> suggestions = new ArrayList<>(latest.size());
+        Set<String> finalIssueIds = new HashSet<>();
+        List<String> retracted = new ArrayList<>();
+        for (PendingWrite write : latest.values()) {
+            if (write.suggestion == null) {
+                retracted.add(write.issueId);
+                continue;
+            }
+            suggestions.add(write.suggestion);
+            if (!write.partial) {
+                finalIssueIds.add(write.issueId);
+            }
+        }
+
+        try {
+            // Only count finals that made it
+            int written = dynamoDBService.writeSuggestions(analysisId, suggestions);
+            persisted += written >= suggestions.size() ? finalIssueIds.size()
+                    : Math.min(written, finalIssueIds.size());
+            if (!retracted.isEmpty()) {
+                int deleted = dynamoDBService.deleteSuggestions(analysisId, retracted);
+                log.info("Deleted {}/{} partial suggestions of {} without a final one", deleted, retracted.size(),
+                        analysisId);
+            }
+            flushes++;
+            if (publishProgress) {
+                // Suggestions and issues of earlier invocations are already in the table, count them too
+                dynamoDBService.updateAnalysisProgress(analysisId, "suggestions_in_progress",
+                        alreadySuggested + persisted, alreadyCompleted + persisted, totalIssues);
+            }
+        } catch (Exception e) {
+            log.error("Failed to flush {} suggestions for {}: {}", batch.size(), analysisId, e.getMessage());
+        }
+    }
+
+    /**
+     * A queued suggestion write, or the deletion of the issue's partial when suggestion is null
+     */
+    private static final class PendingWrite {
+        final String issueId;
+        final DeveloperSuggestion suggestion;
+        final boolean partial;
+
+        PendingWrite(String issueId, DeveloperSuggestion suggestion, boolean partial) {
+            this.issueId = issueId;
+            this.suggestion = suggestion;
+            this.partial = partial;
+        }
+    }
+}
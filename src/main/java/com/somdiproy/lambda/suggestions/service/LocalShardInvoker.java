@@ -0,0 +1,98 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/LocalShardInvoker.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.somdiproy.lambda.suggestions.model.SuggestionRequest;
+import com.somdiproy.lambda.suggestions.model.SuggestionResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * In-process stand-in for invoking worker Lambdas: each shard runs through the given
+ * handler on the executor, with a Context whose remaining time is the shard timeout.
+ * Exercises the coordinator's fan-out/fan-in and the shared budget without deploying.
+ * Cancelling a returned future interrupts the shard's run.
+ */
+public class LocalShardInvoker implements ShardInvoker {
+
+    private final BiFunction<SuggestionRequest, Context, SuggestionResponse> handler;
+    private final ExecutorService executor;
+    private final LambdaLogger logger;
+
+    public LocalShardInvoker(BiFunction<SuggestionRequest, Context, SuggestionResponse> handler,
+                             ExecutorService executor, LambdaLogger logger) {
+        this.handler = handler;
+        this.executor = executor;
+        this.logger = logger;
+    }
+
+    @Override
+    public CompletableFuture<SuggestionResponse> invoke(SuggestionRequest shard, long timeoutMs) {
+        LocalContext context = new LocalContext(shard.getShardId(), System.currentTimeMillis() + timeoutMs, logger);
+        CompletableFuture<SuggestionResponse> result = new CompletableFuture<>();
+        Future<?> run = executor.submit(() -> {
+            try {
+                result.complete(handler.apply(shard, context));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        // Cancelling the shard interrupts its handler, which then cancels its own in-flight calls
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                run.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Minimal Lambda context for a shard run in-process
+     */
+    private static final class LocalContext implements Context {
+        private final String requestId;
+        private final long deadline;
+        private final LambdaLogger logger;
+
+        LocalContext(String requestId, long deadline, LambdaLogger logger) {
+            this.requestId = requestId;
+            this.deadline = deadline;
+            this.logger = logger != null ? logger : new StdoutLogger();
+        }
+
+        @Override public String getAwsRequestId() { return requestId; }
+        @Override public String getLogGroupName() { return "local"; }
+        @Override public String getLogStreamName() { return requestId; }
+        @Override public String getFunctionName() { return "local-shard-worker"; }
+        @Override public String getFunctionVersion() { return "$LATEST"; }
+        @Override public String getInvokedFunctionArn() { return "local"; }
+        @Override public CognitoIdentity getIdentity() { return null; }
+        @Override public ClientContext getClientContext() { return null; }
+        @Override public int getMemoryLimitInMB() { return (int) (Runtime.getRuntime().maxMemory() >> 20); }
+        @Override public LambdaLogger getLogger() { return logger; }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, deadline - System.currentTimeMillis()));
+        }
+    }
+
+    private static final class StdoutLogger implements LambdaLogger {
+        @Override
+        public void log(String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void log(byte[] message) {
+            System.out.println(new String(message, StandardCharsets.UTF_8));
+        }
+    }
+}
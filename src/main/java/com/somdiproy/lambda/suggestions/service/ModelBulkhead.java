@@ -0,0 +1,257 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/ModelBulkhead.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency limit and circuit breaker for a single model ID.
+ *
+ * The breaker looks at the outcome of the last windowSize calls and opens once at
+ * least minCalls of them were seen and the failure rate reaches the threshold. After
+ * openMs it lets exactly one probe call through (HALF_OPEN); the probe's outcome closes
+ * the breaker with a fresh window or re-opens it, while late outcomes of calls admitted
+ * before the breaker opened are ignored. Calls beyond the concurrency limit are rejected
+ * rather than queued, so the caller can fail over to another model. Outcomes are
+ * reported through the call's {@link Permit}.
+ */
+public class ModelBulkhead {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ModelBulkhead.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String modelId;
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final boolean breakerEnabled;
+    private final double failureRateThreshold;
+    private final int minCalls;
+    private final long openMs;
+
+    // Sliding window of call outcomes (true = failure)
+    private final boolean[] window;
+    private int windowCount;
+    private int windowFailures;
+    private int windowNext;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    private long rejected;
+    private long opened;
+
+    public ModelBulkhead(String modelId, int maxConcurrent, boolean breakerEnabled, int windowSize, int minCalls,
+                         double failureRateThreshold, long openMs) {
+        this.modelId = modelId;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.slots = new Semaphore(this.maxConcurrent);
+        this.breakerEnabled = breakerEnabled;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * Take a concurrency slot, or null if the breaker or the bulkhead rejects the call.
+     * The permit must be released once the call has finished, whatever its outcome.
+     */
+    public Permit tryAcquire() {
+        boolean probe = false;
+        if (breakerEnabled) {
+            State current = currentState();
+            if (current == State.OPEN) {
+                return reject();
+            }
+            if (current == State.HALF_OPEN) {
+                // Only a single probe while half-open
+                if (!probeInFlight.compareAndSet(false, true)) {
+                    return reject();
+                }
+                probe = true;
+            }
+        }
+        if (!slots.tryAcquire()) {
+            if (probe) {
+                probeInFlight.set(false);
+            }
+            return reject();
+        }
+        return new Permit(probe);
+    }
+
+    /**
+     * Whether a call would currently be admitted (no side effects)
+     */
+    public boolean isCallPermitted() {
+        if (slots.availablePermits() == 0) {
+            return false;
+        }
+        if (!breakerEnabled) {
+            return true;
+        }
+        State current = currentState();
+        return current == State.CLOSED || (current == State.HALF_OPEN && !probeInFlight.get());
+    }
+
+    /**
+     * A call succeeded; probe tells whether it was the half-open probe. Only the probe
+     * closes a half-open breaker, and only calls made while closed feed the window.
+     */
+    public synchronized void recordSuccess(boolean probe) {
+        if (state == State.HALF_OPEN) {
+            if (probe) {
+                log.info("Circuit breaker for {}: probe succeeded, closing", modelId);
+                state = State.CLOSED;
+                resetWindow();
+                probeInFlight.set(false);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * A call failed; only the half-open probe re-opens a half-open breaker
+     */
+    public synchronized void recordFailure(boolean probe) {
+        if (!breakerEnabled) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probe) {
+                log.warn("Circuit breaker for {}: probe failed, re-opening for {} ms", modelId, openMs);
+                open();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minCalls
+                && (double) windowFailures / windowCount >= failureRateThreshold) {
+            log.warn("Circuit breaker for {}: opening after {}/{} failed calls", modelId, windowFailures, windowCount);
+            open();
+        }
+    }
+
+    public State getState() {
+        return currentState();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", currentState().toString());
+        stats.put("inFlight", maxConcurrent - slots.availablePermits());
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("windowCalls", windowCount);
+        stats.put("windowFailureRate", windowCount > 0 ? (double) windowFailures / windowCount : 0.0);
+        stats.put("rejected", rejected);
+        stats.put("timesOpened", opened);
+        return stats;
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            synchronized (this) {
+                if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+                    log.info("Circuit breaker for {}: transitioning to HALF_OPEN", modelId);
+                    state = State.HALF_OPEN;
+                    probeInFlight.set(false);
+                }
+            }
+        }
+        return state;
+    }
+
+    private synchronized Permit reject() {
+        rejected++;
+        return null;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        opened++;
+        resetWindow();
+        probeInFlight.set(false);
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void resetWindow() {
+        windowCount = 0;
+        windowFailures = 0;
+        windowNext = 0;
+    }
+
+    /**
+     * A held concurrency slot; release is idempotent
+     */
+    public final class Permit {
+        private final boolean probe;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean probe) {
+            this.probe = probe;
+        }
+
+        public boolean isProbe() {
+            return probe;
+        }
+
+        /**
+         * Report that the call this permit was taken for succeeded
+         */
+        public void recordSuccess() {
+            ModelBulkhead.this.recordSuccess(probe);
+        }
+
+        /**
+         * Report that the call this permit was taken for failed
+         */
+        public void recordFailure() {
+            ModelBulkhead.this.recordFailure(probe);
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+                // A probe that ended without an outcome (e.g. cancelled) frees the probe slot
+                if (probe && state == State.HALF_OPEN) {
+                    probeInFlight.set(false);
+                }
+            }
+        }
+    }
+}
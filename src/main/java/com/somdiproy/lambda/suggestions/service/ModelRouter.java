@@ -0,0 +1,447 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/ModelRouter.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Cost- and latency-aware model selection.
+ *
+ * Keeps rolling per-model statistics over a time window: call latency (p50/p95), the
+ * share of attempts that were throttled, the share of suggestions that ended up as a
+ * fallback (call or parse failure), and the cost per usable suggestion. Each issue is
+ * routed to the cheapest candidate that meets the SLO for its severity; a model that is
+ * being throttled is skipped until its window clears, and a model whose breaker is open
+ * or whose bulkhead is full is not routed to at all. Models with too few samples are
+ * given the benefit of the doubt so they keep getting explored.
+ *
+ * The invoker feeds call and throttle events, the handler feeds suggestion outcomes.
+ * Shared across warm invocations; thread-safe.
+ */
+public class ModelRouter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ModelRouter.class);
+
+    public static final String TEMPLATE_MODE = "TEMPLATE_MODE";
+
+    private static final long WINDOW_MS = Long.parseLong(System.getenv().getOrDefault("ROUTER_WINDOW_MS", "300000"));
+    private static final int MIN_SAMPLES = Integer.parseInt(System.getenv().getOrDefault("ROUTER_MIN_SAMPLES", "5"));
+    private static final double MAX_THROTTLE_RATE = Double
+            .parseDouble(System.getenv().getOrDefault("ROUTER_MAX_THROTTLE_RATE", "0.2"));
+    private static final int SAMPLE_CAPACITY = 256;
+
+    // Assumed call latency until a model has enough samples
+    private static final long DEFAULT_LATENCY_MS = Long
+            .parseLong(System.getenv().getOrDefault("ROUTER_DEFAULT_LATENCY_MS", "10000"));
+
+    // Assumed tokens per suggestion until a model has cost samples
+    private static final int DEFAULT_TOKENS_PER_SUGGESTION = 1500;
+
+    // Blended USD per 1K tokens and capability tier of the models we know about
+    private static final Map<String, Double> DEFAULT_PRICES = Map.of(
+            "amazon.nova-micro-v1:0", 0.0001,
+            "amazon.nova-lite-v1:0", 0.00015,
+            "amazon.nova-pro-v1:0", 0.002,
+            "amazon.nova-premier-v1:0", 0.0075);
+    private static final Map<String, Integer> DEFAULT_TIERS = Map.of(
+            "amazon.nova-micro-v1:0", 0,
+            "amazon.nova-lite-v1:0", 1,
+            "amazon.nova-pro-v1:0", 2,
+            "amazon.nova-premier-v1:0", 3);
+
+    private final List<String> candidates;
+    private final Map<String, Double> prices;
+    private final Map<String, Slo> slos;
+    private final Predicate<String> available;
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+
+    public ModelRouter(List<String> candidates, Map<String, Double> prices, Map<String, Slo> slos,
+                       Predicate<String> available) {
+        this.candidates = List.copyOf(candidates);
+        this.available = available;
+        this.prices = new HashMap<>(DEFAULT_PRICES);
+        this.prices.putAll(prices);
+        this.slos = slos;
+    }
+
+    /**
+     * Build a router from ROUTER_MODELS, MODEL_PRICES and ROUTER_SLO_&lt;SEVERITY&gt;.
+     * Without ROUTER_MODELS the candidates are Nova Lite and the configured MODEL_ID.
+     * CRITICAL and HIGH issues need tier 2 (Nova Pro) by default, as before routing;
+     * ROUTER_SLO_HIGH=1:25000:0.05, say, lets HIGH issues go to Lite.
+     */
+    public static ModelRouter fromEnvironment(Predicate<String> available) {
+        List<String> models = new ArrayList<>();
+        String configured = System.getenv("ROUTER_MODELS");
+        if (configured != null && !configured.isBlank()) {
+            models.addAll(Arrays.asList(configured.trim().split("\\s*,\\s*")));
+        } else {
+            models.add("amazon.nova-lite-v1:0");
+            String primary = System.getenv("MODEL_ID");
+            models.add(primary != null && !primary.isBlank() ? primary : "amazon.nova-pro-v1:0");
+        }
+
+        Map<String, Slo> slos = new HashMap<>();
+        slos.put("CRITICAL", Slo.parse(System.getenv("ROUTER_SLO_CRITICAL"), new Slo(2, 20000, 0.02)));
+        slos.put("HIGH", Slo.parse(System.getenv("ROUTER_SLO_HIGH"), new Slo(2, 25000, 0.05)));
+        slos.put("MEDIUM", Slo.parse(System.getenv("ROUTER_SLO_MEDIUM"), new Slo(1, 30000, 0.10)));
+        slos.put("LOW", Slo.parse(System.getenv("ROUTER_SLO_LOW"), new Slo(1, 45000, 0.20)));
+
+        return new ModelRouter(models.stream().distinct().toList(), parsePrices(System.getenv("MODEL_PRICES")), slos,
+                available);
+    }
+
+    /**
+     * Cheapest available candidate that meets the severity's SLO. When none does, the most
+     * capable candidate that is not being throttled, and failing that the least throttled
+     * one. If no candidate is available at all the choice is made among all of them.
+     */
+    public String route(String severity) {
+        String model = route(severity, Set.of());
+        return model != null ? model : routeAmong(severity, candidates);
+    }
+
+    /**
+     * Another available candidate for the severity, or null if every other model is
+     * excluded, open or saturated
+     */
+    public String failover(String severity, Set<String> exclude) {
+        return route(severity, exclude);
+    }
+
+    private String route(String severity, Set<String> exclude) {
+        List<String> usable = new ArrayList<>(candidates.size());
+        for (String model : candidates) {
+            if (!exclude.contains(model) && available.test(model)) {
+                usable.add(model);
+            }
+        }
+        return usable.isEmpty() ? null : routeAmong(severity, usable);
+    }
+
+    private String routeAmong(String severity, List<String> models) {
+        Slo slo = slos.getOrDefault(severity != null ? severity.toUpperCase() : "MEDIUM", slos.get("MEDIUM"));
+        long now = System.currentTimeMillis();
+
+        List<Snapshot> snapshots = new ArrayList<>(models.size());
+        for (String model : models) {
+            snapshots.add(statsFor(model).snapshot(now));
+        }
+
+        Snapshot best = null;
+        for (Snapshot snapshot : snapshots) {
+            if (meets(snapshot, slo) && (best == null || expectedCost(snapshot) < expectedCost(best))) {
+                best = snapshot;
+            }
+        }
+        if (best != null) {
+            return best.model;
+        }
+
+        Snapshot fallback = snapshots.stream()
+                .filter(s -> s.throttleRate() <= MAX_THROTTLE_RATE)
+                .max(Comparator.comparingInt((Snapshot s) -> tier(s.model)))
+                .orElseGet(() -> snapshots.stream().min(Comparator.comparingDouble(Snapshot::throttleRate))
+                        .orElse(null));
+        String chosen = fallback != null ? fallback.model : models.get(0);
+        log.warn("No model meets the {} SLO (p95<={}ms, failures<={}), routing to {}", severity,
+                slo.p95LatencyMs, slo.maxFailureRate, chosen);
+        return chosen;
+    }
+
+    /**
+     * Median latency of the model's recent calls, used to schedule work against the
+     * Lambda deadline; 0 for templates
+     */
+    public long expectedLatencyMs(String modelId) {
+        if (modelId == null || TEMPLATE_MODE.equals(modelId)) {
+            return 0L;
+        }
+        Snapshot s = statsFor(modelId).snapshot(System.currentTimeMillis());
+        return s.calls >= MIN_SAMPLES ? s.p50 : DEFAULT_LATENCY_MS;
+    }
+
+    /**
+     * How long to wait for a call to the model before hedging it: its p90 latency, or -1
+     * while there are too few recent calls to know it
+     */
+    public long hedgeDelayMs(String modelId) {
+        if (modelId == null || TEMPLATE_MODE.equals(modelId)) {
+            return -1L;
+        }
+        Snapshot s = statsFor(modelId).snapshot(System.currentTimeMillis());
+        return s.calls >= MIN_SAMPLES ? s.p90 : -1L;
+    }
+
+    /**
+     * One completed model call (after retries)
+     */
+    public void recordCall(String modelId, long latencyMs, int tokens, boolean success) {
+        if (!TEMPLATE_MODE.equals(modelId)) {
+            statsFor(modelId).addCall(System.currentTimeMillis(), latencyMs, tokens, success, false);
+        }
+    }
+
+    /**
+     * A call cancelled after latencyMs because another one answered first: it only feeds
+     * the latency percentiles, as a lower bound, and does not count as a call
+     */
+    public void recordCancelledCall(String modelId, long latencyMs) {
+        if (!TEMPLATE_MODE.equals(modelId)) {
+            statsFor(modelId).addCall(System.currentTimeMillis(), latencyMs, 0, false, true);
+        }
+    }
+
+    /**
+     * One throttled attempt
+     */
+    public void recordThrottle(String modelId) {
+        statsFor(modelId).addThrottle(System.currentTimeMillis());
+    }
+
+    /**
+     * Outcome of one suggestion produced by the model: usable, or a fallback after a
+     * failed call or unparseable output
+     */
+    public void recordSuggestion(String modelId, boolean usable) {
+        if (modelId != null && !TEMPLATE_MODE.equals(modelId)) {
+            statsFor(modelId).addOutcome(System.currentTimeMillis(), usable);
+        }
+    }
+
+    /**
+     * Per-model window statistics for response metadata and monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String model : candidates) {
+            Snapshot s = statsFor(model).snapshot(now);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", s.calls);
+            entry.put("p50LatencyMs", s.p50);
+            entry.put("p90LatencyMs", s.p90);
+            entry.put("p95LatencyMs", s.p95);
+            entry.put("throttleRate", s.throttleRate());
+            entry.put("failureRate", s.failureRate());
+            entry.put("costPerSuccess", s.costPerSuccess(price(model)));
+            entry.put("available", available.test(model));
+            result.put(model, entry);
+        }
+        return result;
+    }
+
+    private boolean meets(Snapshot s, Slo slo) {
+        if (tier(s.model) < slo.minTier) {
+            return false;
+        }
+        if (s.throttleRate() > MAX_THROTTLE_RATE) {
+            return false;
+        }
+        if (s.calls >= MIN_SAMPLES && s.p95 > slo.p95LatencyMs) {
+            return false;
+        }
+        return s.outcomes < MIN_SAMPLES || s.failureRate() <= slo.maxFailureRate;
+    }
+
+    private double expectedCost(Snapshot s) {
+        double observed = s.costPerSuccess(price(s.model));
+        return s.outcomes >= MIN_SAMPLES && observed > 0
+                ? observed
+                : price(s.model) * DEFAULT_TOKENS_PER_SUGGESTION / 1000.0;
+    }
+
+    private double price(String model) {
+        return prices.getOrDefault(model, DEFAULT_PRICES.get("amazon.nova-pro-v1:0"));
+    }
+
+    private static int tier(String model) {
+        return DEFAULT_TIERS.getOrDefault(model, 2);
+    }
+
+    private ModelStats statsFor(String modelId) {
+        return stats.computeIfAbsent(modelId, ModelStats::new);
+    }
+
+    /**
+     * Parse "model=usdPer1kTokens,..." (model IDs contain ':', so split on the last '=')
+     */
+    static Map<String, Double> parsePrices(String spec) {
+        Map<String, Double> parsed = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0) {
+                log.warn("Ignoring malformed MODEL_PRICES entry: {}", entry);
+                continue;
+            }
+            try {
+                parsed.put(entry.substring(0, eq).trim(), Double.parseDouble(entry.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed MODEL_PRICES entry: {}", entry);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Quality/latency objective for one severity: minimum capability tier, p95 latency
+     * and maximum fallback rate
+     */
+    public static class Slo {
+        final int minTier;
+        final long p95LatencyMs;
+        final double maxFailureRate;
+
+        public Slo(int minTier, long p95LatencyMs, double maxFailureRate) {
+            this.minTier = minTier;
+            this.p95LatencyMs = p95LatencyMs;
+            this.maxFailureRate = maxFailureRate;
+        }
+
+        /**
+         * Parse "minTier:p95Ms:maxFailureRate", keeping the default when absent or malformed
+         */
+        static Slo parse(String spec, Slo defaults) {
+            if (spec == null || spec.isBlank()) {
+                return defaults;
+            }
+            String[] parts = spec.trim().split("\\s*:\\s*");
+            try {
+                return new Slo(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Double.parseDouble(parts[2]));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed router SLO '{}'", spec);
+                return defaults;
+            }
+        }
+    }
+
+    /**
+     * Time-stamped ring buffers of the last calls, throttles and outcomes of one model
+     */
+    private static final class ModelStats {
+        private final String model;
+        private final long[] callTimes = new long[SAMPLE_CAPACITY];
+        private final long[] latencies = new long[SAMPLE_CAPACITY];
+        private final int[] tokens = new int[SAMPLE_CAPACITY];
+        private final boolean[] callSuccess = new boolean[SAMPLE_CAPACITY];
+        private final boolean[] callCancelled = new boolean[SAMPLE_CAPACITY];
+        private int callCount;
+
+        private final long[] throttleTimes = new long[SAMPLE_CAPACITY];
+        private int throttleCount;
+
+        private final long[] outcomeTimes = new long[SAMPLE_CAPACITY];
+        private final boolean[] outcomeUsable = new boolean[SAMPLE_CAPACITY];
+        private int outcomeCount;
+
+        ModelStats(String model) {
+            this.model = model;
+        }
+
+        synchronized void addCall(long now, long latencyMs, int tokenCount, boolean success, boolean cancelled) {
+            int slot = callCount++ % SAMPLE_CAPACITY;
+            callTimes[slot] = now;
+            latencies[slot] = latencyMs;
+            tokens[slot] = tokenCount;
+            callSuccess[slot] = success;
+            callCancelled[slot] = cancelled;
+        }
+
+        synchronized void addThrottle(long now) {
+            throttleTimes[throttleCount++ % SAMPLE_CAPACITY] = now;
+        }
+
+        synchronized void addOutcome(long now, boolean usable) {
+            int slot = outcomeCount++ % SAMPLE_CAPACITY;
+            outcomeTimes[slot] = now;
+            outcomeUsable[slot] = usable;
+        }
+
+        synchronized Snapshot snapshot(long now) {
+            long since = now - WINDOW_MS;
+            Snapshot s = new Snapshot(model);
+
+            long[] window = new long[Math.min(callCount, SAMPLE_CAPACITY)];
+            int n = 0;
+            for (int i = 0; i < window.length; i++) {
+                if (callTimes[i] >= since) {
+                    window[n++] = latencies[i];
+                    if (callCancelled[i]) {
+                        continue;
+                    }
+                    s.calls++;
+                    s.tokens += tokens[i];
+                    if (!callSuccess[i]) {
+                        s.failedCalls++;
+                    }
+                }
+            }
+            if (n > 0) {
+                Arrays.sort(window, 0, n);
+                s.p50 = window[(int) Math.ceil(0.50 * n) - 1];
+                s.p90 = window[(int) Math.ceil(0.90 * n) - 1];
+                s.p95 = window[(int) Math.ceil(0.95 * n) - 1];
+            }
+
+            for (int i = 0; i < Math.min(throttleCount, SAMPLE_CAPACITY); i++) {
+                if (throttleTimes[i] >= since) {
+                    s.throttles++;
+                }
+            }
+            for (int i = 0; i < Math.min(outcomeCount, SAMPLE_CAPACITY); i++) {
+                if (outcomeTimes[i] >= since) {
+                    s.outcomes++;
+                    if (outcomeUsable[i]) {
+                        s.usable++;
+                    }
+                }
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Window statistics of one model at one point in time
+     */
+    private static final class Snapshot {
+        final String model;
+        int calls;
+        int failedCalls;
+        long tokens;
+        long p50;
+        long p90;
+        long p95;
+        int throttles;
+        int outcomes;
+        int usable;
+
+        Snapshot(String model) {
+            this.model = model;
+        }
+
+        // Every throttled attempt was retried or failed, so attempts = calls + throttles
+        double throttleRate() {
+            int attempts = calls + throttles;
+            return attempts > 0 ? (double) throttles / attempts : 0.0;
+        }
+
+        double failureRate() {
+            return outcomes > 0 ? (double) (outcomes - usable) / outcomes : 0.0;
+        }
+
+        double costPerSuccess(double pricePer1k) {
+            return usable > 0 ? tokens * pricePer1k / 1000.0 / usable : 0.0;
+        }
+    }
+}
@@ -1,20 +1,42 @@
 // src/main/java/com/somdiproy/lambda/suggestions/service/NovaInvokerService.java
 package com.somdiproy.lambda.suggestions.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import com.somdiproy.lambda.suggestions.templates.TemplateEngine;
+import com.somdiproy.lambda.suggestions.util.TokenOptimizer;
 
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
 import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 import software.amazon.awssdk.services.bedrockruntime.model.*;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 /**
  * Enhanced Service for invoking Amazon Nova models via Bedrock with robust
@@ -26,6 +48,18 @@ public class NovaInvokerService {
 
 	private final BedrockRuntimeClient bedrockClient;
 	private final ObjectMapper objectMapper;
+	private final String region;
+
+	// Async client is created on first use so the blocking path does not pay for the Netty event loop
+	private volatile BedrockRuntimeAsyncClient bedrockAsyncClient;
+
+	// Retries of async calls are scheduled here instead of sleeping on a worker thread
+	private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r);
+		t.setDaemon(true);
+		t.setName("nova-retry-scheduler");
+		return t;
+	});
 
 	// Nova Premier pricing (per 1M tokens)
 	private static final double INPUT_TOKEN_COST = 0.0008; // $0.80 per 1M input tokens
@@ -39,25 +73,27 @@ public class NovaInvokerService {
 			.parseLong(System.getenv().getOrDefault("RETRY_MAX_DELAY_MS", "60000"));
 	private static final double JITTER_FACTOR = 0.25; // 25% jitter
 
-	// Rate limiting configuration for Nova Premier
-	private static final long MIN_CALL_INTERVAL_MS = 5000; // Reduce to 0.5 calls per second for Nova Premier
-	private static final long ADAPTIVE_BACKOFF_MULTIPLIER = 2;
-	private volatile long currentBackoffMs = MIN_CALL_INTERVAL_MS;
-	private static final int RATE_LIMIT_WINDOW_SIZE = 10; // Track last 10 calls
-	private final LinkedList<Long> callTimestamps = new LinkedList<>();
-	private final Map<String, Long> lastCallTime = new ConcurrentHashMap<>();
-
-	// Circuit breaker state
-	private enum CircuitState {
-		CLOSED, OPEN, HALF_OPEN
-	}
-
-	private volatile CircuitState circuitState = CircuitState.CLOSED;
-	private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
-	private final AtomicLong circuitOpenTime = new AtomicLong(0);
-	private static final int FAILURE_THRESHOLD = 3;
+	// Shortest time worth starting an attempt with; less than this left before the deadline ends the call
+	private static final long MIN_ATTEMPT_MS = Long
+			.parseLong(System.getenv().getOrDefault("DEADLINE_MIN_ATTEMPT_MS", "3000"));
+
+	// Per-model token buckets (RATE_LIMITS), shared across warm invocations
+	private final RateLimiter rateLimiter;
+
+	// Rolling per-model latency/throttle/failure stats that drive model selection
+	private final ModelRouter modelRouter;
+
+	// Per-model bulkheads: concurrency limit plus a circuit breaker over a sliding failure-rate window
+	private final Map<String, ModelBulkhead> bulkheads = new ConcurrentHashMap<>();
+	private static final Map<String, Integer> BULKHEAD_LIMITS = parseBulkheadLimits(System.getenv("BULKHEAD_LIMITS"));
+	private static final int BULKHEAD_DEFAULT_LIMIT = Integer
+			.parseInt(System.getenv().getOrDefault("BULKHEAD_DEFAULT_LIMIT", "4"));
+	private static final int CIRCUIT_WINDOW_SIZE = Integer
+			.parseInt(System.getenv().getOrDefault("CIRCUIT_WINDOW_SIZE", "20"));
+	private static final int CIRCUIT_MIN_CALLS = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_MIN_CALLS", "5"));
+	private static final double CIRCUIT_FAILURE_RATE = Double
+			.parseDouble(System.getenv().getOrDefault("CIRCUIT_FAILURE_RATE", "0.5"));
 	private static final long CIRCUIT_RESET_TIMEOUT_MS = 120000; // 2 minutes for Nova Premier
-	private static final int ADAPTIVE_BATCH_SIZE = 2; // Reduce batch size when throttled
 	private static final boolean CIRCUIT_BREAKER_ENABLED = Boolean
 			.parseBoolean(System.getenv().getOrDefault("CIRCUIT_BREAKER_ENABLED", "true"));
 
@@ -65,11 +101,69 @@ public class NovaInvokerService {
 	private final Map<String, AtomicInteger> callCount = new ConcurrentHashMap<>();
 	private final Map<String, AtomicLong> totalLatency = new ConcurrentHashMap<>();
 	private final Map<String, AtomicInteger> throttleCount = new ConcurrentHashMap<>();
+	private final AtomicLong hedgeCalls = new AtomicLong();
+	private final AtomicLong hedgesSent = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong hedgesDeclined = new AtomicLong();
 
 	public NovaInvokerService(String region) {
-		this.bedrockClient = BedrockRuntimeClient.builder().region(software.amazon.awssdk.regions.Region.of(region))
-				.build();
+		this.region = region;
+		this.bedrockClient = AwsClients.bedrock(region);
 		this.objectMapper = new ObjectMapper();
+		this.rateLimiter = TokenBucketRateLimiter.fromEnvironment(retryScheduler);
+		this.modelRouter = ModelRouter.fromEnvironment(model -> bulkheadFor(model).isCallPermitted());
+	}
+
+	public ModelRouter getModelRouter() {
+		return modelRouter;
+	}
+
+	private BedrockRuntimeAsyncClient getAsyncClient() {
+		BedrockRuntimeAsyncClient client = bedrockAsyncClient;
+		if (client == null) {
+			client = AwsClients.bedrockAsync(region);
+			bedrockAsyncClient = client;
+		}
+		return client;
+	}
+
+	/**
+	 * Load and exercise request serialization and response parsing without a remote
+	 * call. Nothing is recorded in metrics, breakers or the router.
+	 */
+	public void prime() {
+		try {
+			String requestJson = objectMapper.writeValueAsString(buildRequestBody("prime", 1, 0.0));
+			objectMapper.readTree("{\"output\":{\"message\":{\"content\":[{\"text\":\"{}\"}]}},"
+					+ "\"usage\":{\"inputTokens\":1,\"outputTokens\":1}}");
+			InvokeModelRequest.builder().modelId("prime").body(SdkBytes.fromUtf8String(requestJson))
+					.contentType("application/json").accept("application/json").build();
+		} catch (Exception e) {
+			log.warn("Bedrock priming incomplete: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Exercise the HTTP, TLS and signing stack of the sync (and optionally async) client
+	 * without a billed call: the probe names no model, so Bedrock rejects it. Meant for
+	 * the SnapStart checkpoint only; nothing is recorded in metrics, breakers or the router.
+	 */
+	public void warmUp(boolean includeAsync) {
+		try {
+			InvokeModelRequest probe = InvokeModelRequest.builder().modelId("prime")
+					.body(SdkBytes.fromUtf8String(objectMapper.writeValueAsString(buildRequestBody("prime", 1, 0.0))))
+					.contentType("application/json").accept("application/json").build();
+			try {
+				bedrockClient.invokeModel(probe);
+			} catch (SdkException expected) {
+				log.debug("Bedrock warm-up probe answered: {}", expected.getMessage());
+			}
+			if (includeAsync) {
+				getAsyncClient().invokeModel(probe).handle((r, t) -> null).get(5, TimeUnit.SECONDS);
+			}
+		} catch (Exception e) {
+			log.warn("Bedrock warm-up incomplete: {}", e.getMessage());
+		}
 	}
 
 	/**
@@ -77,6 +171,15 @@ public class NovaInvokerService {
 	 */
 	public NovaResponse invokeNova(String modelId, String prompt, int maxTokens, double temperature, double topP)
 			throws NovaInvokerException {
+		return invokeNova(modelId, prompt, maxTokens, temperature, topP, Deadline.none());
+	}
+
+	/**
+	 * Invoke Nova within a deadline: each attempt's SDK call timeout is what is left of
+	 * it, and no attempt or backoff is started that cannot finish before it
+	 */
+	public NovaResponse invokeNova(String modelId, String prompt, int maxTokens, double temperature, double topP,
+			Deadline deadline) throws NovaInvokerException {
 
 // Handle template mode before processing
 		if ("TEMPLATE_MODE".equals(modelId)) {
@@ -84,23 +187,32 @@ public class NovaInvokerService {
 		}
 
 // Continue with your existing implementation...
-		String callKey = modelId + "-" + Thread.currentThread().getName();
 		long startTime = System.currentTimeMillis();
 
-		// Check circuit breaker state
-		if (CIRCUIT_BREAKER_ENABLED) {
-			checkCircuitBreaker();
+		// Per-model breaker and concurrency slot, held across retries
+		ModelBulkhead.Permit permit = acquireBulkhead(modelId);
+		try {
+			return invokeWithRetries(modelId, prompt, maxTokens, temperature, startTime, deadline, permit);
+		} finally {
+			permit.release();
 		}
+	}
 
+	private NovaResponse invokeWithRetries(String modelId, String prompt, int maxTokens, double temperature,
+			long startTime, Deadline deadline, ModelBulkhead.Permit permit)
+			throws NovaInvokerException {
 		Exception lastException = null;
 
 		for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
 			try {
-				// Enforce rate limiting before each attempt
-				enforceRateLimit(callKey);
+				// Don't start an attempt that cannot finish before the deadline
+				checkDeadline(modelId, deadline, lastException);
+
+				// Enforce per-model rate limiting before each attempt
+				awaitPermit(modelId, deadline);
 
 				// Update call metrics
-				updateCallMetrics(callKey);
+				updateCallMetrics(modelId);
 
 				// Build request payload for Nova models
 				Map<String, Object> requestBody = buildRequestBody(prompt, maxTokens, temperature);
@@ -112,50 +224,39 @@ public class NovaInvokerService {
 
 				log.debug("Nova API Request (attempt {}): {}", attempt, requestJson);
 
-				// Create Bedrock request
-				InvokeModelRequest request = InvokeModelRequest.builder().modelId(modelId)
+				// Create Bedrock request, bounded by whatever is left of the deadline
+				InvokeModelRequest.Builder requestBuilder = InvokeModelRequest.builder().modelId(modelId)
 						.body(SdkBytes.fromUtf8String(requestJson)).contentType("application/json")
-						.accept("application/json").build();
+						.accept("application/json");
+				if (deadline.isBounded()) {
+					requestBuilder.overrideConfiguration(
+							o -> o.apiCallTimeout(Duration.ofMillis(deadline.remainingMillis())));
+				}
 
 				// Execute request
-				InvokeModelResponse response = bedrockClient.invokeModel(request);
+				InvokeModelResponse response = bedrockClient.invokeModel(requestBuilder.build());
 				String responseBody = response.body().asUtf8String();
 				log.debug("Nova API Response: {}", responseBody);
 
 				// Parse successful response
-				NovaResponse novaResponse = parseResponse(responseBody, modelId);
-
-				// Reset circuit breaker on success
-				if (CIRCUIT_BREAKER_ENABLED && circuitState != CircuitState.CLOSED) {
-					log.info("Circuit breaker: resetting to CLOSED state after successful call");
-					circuitState = CircuitState.CLOSED;
-					consecutiveFailures.set(0);
-				}
-
-				// Log success metrics
-				long latency = System.currentTimeMillis() - startTime;
-				logMetrics(modelId, novaResponse.getTotalTokens(), novaResponse.getEstimatedCost(), latency,
-						attempt - 1, true);
+				NovaResponse novaResponse = parseResponse(responseBody, modelId, prompt);
+				recordSuccess(modelId, permit, novaResponse, startTime, attempt - 1);
 
 				return novaResponse;
 
+			} catch (DeadlineExceededException e) {
+				throw e;
+
 			} catch (ThrottlingException e) {
 				// Rate limit exceeded - retry with exponential backoff
 				log.warn("Rate limit exceeded for {}, attempt {}/{}: {}", modelId, attempt, MAX_RETRIES,
 						e.getMessage());
 				lastException = e;
 				throttleCount.computeIfAbsent(modelId, k -> new AtomicInteger()).incrementAndGet();
+				modelRouter.recordThrottle(modelId);
 
 				if (attempt < MAX_RETRIES) {
-					long delay = calculateExponentialBackoffDelay(attempt);
-					log.info("Throttled - waiting {}ms before retry attempt {}", delay, attempt + 1);
-
-					try {
-						Thread.sleep(delay);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-						throw new NovaInvokerException("Interrupted during retry", ie);
-					}
+					backoff(modelId, attempt, deadline, e);
 				}
 
 			} catch (ModelTimeoutException e) {
@@ -164,13 +265,7 @@ public class NovaInvokerService {
 				lastException = e;
 
 				if (attempt < MAX_RETRIES) {
-					long delay = calculateExponentialBackoffDelay(attempt);
-					try {
-						Thread.sleep(delay);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-						throw new NovaInvokerException("Interrupted during retry", ie);
-					}
+					backoff(modelId, attempt, deadline, e);
 				}
 
 			} catch (BedrockRuntimeException e) {
@@ -179,17 +274,10 @@ public class NovaInvokerService {
 					log.warn("Bedrock service error for {}, attempt {}/{}: {}", modelId, attempt, MAX_RETRIES,
 							e.getMessage());
 					lastException = e;
-
-					long delay = calculateExponentialBackoffDelay(attempt);
-					try {
-						Thread.sleep(delay);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-						throw new NovaInvokerException("Interrupted during retry", ie);
-					}
+					backoff(modelId, attempt, deadline, e);
 				} else {
 					// Non-retryable error
-					handleCircuitBreakerFailure();
+					handleCircuitBreakerFailure(permit);
 					throw new NovaInvokerException("Bedrock service error: " + e.getMessage(), e);
 				}
 
@@ -198,47 +286,50 @@ public class NovaInvokerService {
 				if (e.statusCode() >= 500 && attempt < MAX_RETRIES) {
 					log.warn("AWS service error (5xx) for {}, attempt {}/{}", modelId, attempt, MAX_RETRIES);
 					lastException = e;
-
-					long delay = calculateExponentialBackoffDelay(attempt);
-					try {
-						Thread.sleep(delay);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-						throw new NovaInvokerException("Interrupted during retry", ie);
-					}
+					backoff(modelId, attempt, deadline, e);
 				} else {
-					handleCircuitBreakerFailure();
+					handleCircuitBreakerFailure(permit);
 					throw new NovaInvokerException("AWS service error: " + e.getMessage(), e);
 				}
 
+			} catch (ApiCallTimeoutException e) {
+				// Our own deadline cut the call short; that says nothing about the model's health
+				if (deadline.isBounded()) {
+					throw new DeadlineExceededException(modelId, deadline, e);
+				}
+				handleCircuitBreakerFailure(permit);
+				throw new NovaInvokerException("Client error: " + e.getMessage(), e);
+
+			} catch (AbortedException | InterruptedException e) {
+				// The caller's scope cancelled the call; that says nothing about the model's health
+				Thread.currentThread().interrupt();
+				throw new NovaInvokerException("Call cancelled: " + e.getMessage(), e);
+
 			} catch (SdkClientException e) {
 				// Client-side error (network, config, etc.) - retry for network issues
 				log.error("Client error for {}, attempt {}/{}: {}", modelId, attempt, MAX_RETRIES, e.getMessage());
 				lastException = e;
 
 				if (attempt < MAX_RETRIES && isNetworkError(e)) {
-					long delay = calculateExponentialBackoffDelay(attempt);
-					try {
-						Thread.sleep(delay);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-						throw new NovaInvokerException("Interrupted during retry", ie);
-					}
+					backoff(modelId, attempt, deadline, e);
 				} else {
-					handleCircuitBreakerFailure();
+					handleCircuitBreakerFailure(permit);
 					throw new NovaInvokerException("Client error: " + e.getMessage(), e);
 				}
 
+			} catch (NovaInvokerException e) {
+				throw e;
+
 			} catch (Exception e) {
 				// Unexpected error
 				log.error("Unexpected error for {}: {}", modelId, e.getMessage(), e);
-				handleCircuitBreakerFailure();
+				handleCircuitBreakerFailure(permit);
 				throw new NovaInvokerException("Unexpected error: " + e.getMessage(), e);
 			}
 		}
 
 		// All retries exhausted
-		handleCircuitBreakerFailure();
+		handleCircuitBreakerFailure(permit);
 		log.error("All {} retry attempts failed for Nova {}", MAX_RETRIES, modelId);
 
 		// Log failure metrics
@@ -247,16 +338,579 @@ public class NovaInvokerService {
 
 		throw new NovaInvokerException("All retry attempts failed", lastException);
 	}
+
+	/**
+	 * Sleep before the next attempt, or give up if the backoff plus a minimal attempt
+	 * would overrun the deadline
+	 */
+	private void backoff(String modelId, int attempt, Deadline deadline, Exception lastException)
+			throws NovaInvokerException {
+		long delay = calculateExponentialBackoffDelay(attempt);
+		if (!deadline.allows(delay + MIN_ATTEMPT_MS)) {
+			log.warn("Not retrying {}: {}ms backoff would overrun {}", modelId, delay, deadline);
+			throw new DeadlineExceededException(modelId, deadline, lastException);
+		}
+		log.info("Waiting {}ms before retry attempt {}", delay, attempt + 1);
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new NovaInvokerException("Interrupted during retry", ie);
+		}
+	}
+
+	private void checkDeadline(String modelId, Deadline deadline, Exception lastException)
+			throws DeadlineExceededException {
+		if (!deadline.allows(MIN_ATTEMPT_MS)) {
+			throw new DeadlineExceededException(modelId, deadline, lastException);
+		}
+	}
 	
+	/**
+	 * Non-blocking variant of {@link #invokeNova} backed by BedrockRuntimeAsyncClient.
+	 * No thread is parked while the call is in flight; rate-limit permits and retry
+	 * backoff are scheduled on the retry scheduler. Cancelling the returned future
+	 * cancels the in-flight SDK call and any pending retry.
+	 */
+	public CompletableFuture<NovaResponse> invokeNovaAsync(String modelId, String prompt, int maxTokens,
+			double temperature, double topP) {
+		return invokeNovaAsync(modelId, prompt, maxTokens, temperature, topP, Deadline.none());
+	}
+
+	public CompletableFuture<NovaResponse> invokeNovaAsync(String modelId, String prompt, int maxTokens,
+			double temperature, double topP, Deadline deadline) {
+
+		if ("TEMPLATE_MODE".equals(modelId)) {
+			return CompletableFuture.completedFuture(createTemplateResponse(prompt, maxTokens));
+		}
+
+		String requestJson;
+		ModelBulkhead.Permit permit;
+		try {
+			requestJson = objectMapper.writeValueAsString(buildRequestBody(prompt, maxTokens, temperature));
+			permit = acquireBulkhead(modelId);
+		} catch (NovaInvokerException e) {
+			return CompletableFuture.failedFuture(e);
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(new NovaInvokerException("Unexpected error: " + e.getMessage(), e));
+		}
+
+		CompletableFuture<NovaResponse> result = new CompletableFuture<>();
+		result.whenComplete((r, t) -> permit.release());
+		attemptAsync(modelId, requestJson, prompt, 1, System.currentTimeMillis(), deadline, null, permit, result);
+		return result;
+	}
+
+	/**
+	 * Hedged variant of {@link #invokeNovaAsync}: if the call to modelId has not returned
+	 * after hedgeAfterMs, a second call goes to hedgeModelId and the first success wins;
+	 * the other call is cancelled. The hedge goes through the rate limiter and bulkhead
+	 * like any call. admitHedge is asked when the hedge is due (the caller reserves its
+	 * tokens there) and false skips it. When a hedge was sent, the winning response's
+	 * metadata "hedge" is "won" if the hedge answered and "lost" if the first call did.
+	 */
+	public CompletableFuture<NovaResponse> invokeNovaHedged(String modelId, String hedgeModelId, String prompt,
+			int maxTokens, double temperature, double topP, long hedgeAfterMs, BooleanSupplier admitHedge,
+			Deadline deadline) {
+		hedgeCalls.incrementAndGet();
+		long startTime = System.currentTimeMillis();
+		CompletableFuture<NovaResponse> result = new CompletableFuture<>();
+		CompletableFuture<NovaResponse> primary = invokeNovaAsync(modelId, prompt, maxTokens, temperature, topP,
+				deadline);
+		AtomicReference<CompletableFuture<NovaResponse>> hedge = new AtomicReference<>();
+		// Set before the hedge is sent, so the first call cannot finish without seeing it
+		AtomicBoolean hedged = new AtomicBoolean();
+		AtomicBoolean settled = new AtomicBoolean();
+		AtomicInteger running = new AtomicInteger(1);
+
+		primary.whenComplete((response, error) -> {
+			if (error instanceof CancellationException && hedged.get()) {
+				// The hedged-away call took at least this long; recording its latency keeps the p90 from
+				// drifting down as slow calls stop being observed, without counting it as a call
+				modelRouter.recordCancelledCall(modelId, System.currentTimeMillis() - startTime);
+			}
+			settleLeg(result, response, error, hedged.get() ? "lost" : null, running, settled, null);
+		});
+
+		if (hedgeAfterMs > 0 && deadline.allows(hedgeAfterMs + MIN_ATTEMPT_MS)) {
+			ScheduledFuture<?> timer = retryScheduler.schedule(() -> {
+				if (result.isDone() || !deadline.allows(MIN_ATTEMPT_MS)) {
+					return;
+				}
+				if (!admitHedge.getAsBoolean()) {
+					hedgesDeclined.incrementAndGet();
+					log.info("Not hedging {} call after {}ms: token budget exhausted", modelId, hedgeAfterMs);
+					return;
+				}
+				// Only while the first call is still running
+				if (running.getAndUpdate(n -> n > 0 ? n + 1 : n) == 0) {
+					return;
+				}
+				hedged.set(true);
+				hedgesSent.incrementAndGet();
+				log.info("Hedging {} call after {}ms with {}", modelId, hedgeAfterMs, hedgeModelId);
+				CompletableFuture<NovaResponse> second = invokeNovaAsync(hedgeModelId, prompt, maxTokens, temperature,
+						topP, deadline);
+				hedge.set(second);
+				if (result.isDone()) {
+					second.cancel(true);
+				}
+				second.whenComplete((response, error) -> settleLeg(result, response, error, "won", running, settled,
+						hedgeWins::incrementAndGet));
+			}, hedgeAfterMs, TimeUnit.MILLISECONDS);
+			result.whenComplete((r, t) -> timer.cancel(false));
+		}
+
+		// Whichever way the result completes (success, failure, caller cancelled), stop both calls
+		result.whenComplete((r, t) -> {
+			primary.cancel(true);
+			CompletableFuture<NovaResponse> second = hedge.get();
+			if (second != null) {
+				second.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * One leg of a hedged call finished: the first success completes the result, a failure
+	 * only does once no other leg is running. The winner is tagged and onWin runs before
+	 * the result completes, since completing it runs its dependents right away.
+	 */
+	private void settleLeg(CompletableFuture<NovaResponse> result, NovaResponse response, Throwable error,
+			String hedgeOutcome, AtomicInteger running, AtomicBoolean settled, Runnable onWin) {
+		if (error == null) {
+			if (result.isDone() || !settled.compareAndSet(false, true)) {
+				return;
+			}
+			if (hedgeOutcome != null) {
+				response.getMetadata().put("hedge", hedgeOutcome);
+			}
+			if (onWin != null) {
+				onWin.run();
+			}
+			result.complete(response);
+			return;
+		}
+		if (running.decrementAndGet() == 0) {
+			result.completeExceptionally(unwrap(error));
+		}
+	}
+
+	private void attemptAsync(String modelId, String requestJson, String prompt, int attempt, long startTime,
+			Deadline deadline, Throwable lastError, ModelBulkhead.Permit permit,
+			CompletableFuture<NovaResponse> result) {
+		if (result.isDone()) {
+			return; // Caller cancelled or gave up
+		}
+
+		// Permit wait is scheduled by the limiter, no thread is held while waiting
+		whenPermitted(modelId, deadline, lastError, result,
+				() -> sendAsync(modelId, requestJson, prompt, attempt, startTime, deadline, lastError, permit,
+						result));
+	}
+
+	/**
+	 * Run send once the model's rate-limit permit is usable. The result is failed instead
+	 * when the permit would come too late for the deadline, the limiter fails or send
+	 * throws, so it always completes. A result completed (cancelled, say) before the
+	 * permit came due hands the permit back.
+	 */
+	private void whenPermitted(String modelId, Deadline deadline, Throwable lastError,
+			CompletableFuture<NovaResponse> result, Runnable send) {
+		CompletableFuture<Void> permit;
+		try {
+			permit = deadline.isBounded()
+					? rateLimiter.acquire(modelId, Math.max(0L, deadline.remainingMillis() - MIN_ATTEMPT_MS))
+					: rateLimiter.acquire(modelId);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(new NovaInvokerException("Rate limiter failed: " + e.getMessage(), e));
+			return;
+		}
+		if (!permit.isDone()) {
+			result.whenComplete((r, t) -> permit.cancel(false));
+		}
+		permit.whenComplete((ignored, error) -> {
+			if (result.isDone()) {
+				return;
+			}
+			if (error != null) {
+				Throwable cause = unwrap(error);
+				if (cause instanceof CancellationException) {
+					return; // Handed back because the result completed
+				}
+				result.completeExceptionally(cause instanceof TimeoutException
+						? new DeadlineExceededException(modelId, deadline, lastError)
+						: new NovaInvokerException("Rate limiter failed: " + cause.getMessage(), cause));
+				return;
+			}
+			try {
+				send.run();
+			} catch (RuntimeException e) {
+				result.completeExceptionally(new NovaInvokerException("Unexpected error: " + e.getMessage(), e));
+			}
+		});
+	}
+
+	private void sendAsync(String modelId, String requestJson, String prompt, int attempt, long startTime,
+			Deadline deadline, Throwable lastError, ModelBulkhead.Permit permit,
+			CompletableFuture<NovaResponse> result) {
+		if (result.isDone()) {
+			return;
+		}
+		if (!deadline.allows(MIN_ATTEMPT_MS)) {
+			result.completeExceptionally(new DeadlineExceededException(modelId, deadline, lastError));
+			return;
+		}
+
+		updateCallMetrics(modelId);
+		if (attempt > 1) {
+			log.info("Async retry attempt {}/{} for Nova {} invocation", attempt, MAX_RETRIES, modelId);
+		}
+
+		InvokeModelRequest.Builder requestBuilder = InvokeModelRequest.builder().modelId(modelId)
+				.body(SdkBytes.fromUtf8String(requestJson)).contentType("application/json")
+				.accept("application/json");
+		if (deadline.isBounded()) {
+			requestBuilder.overrideConfiguration(o -> o.apiCallTimeout(Duration.ofMillis(deadline.remainingMillis())));
+		}
+		InvokeModelRequest request = requestBuilder.build();
+
+		CompletableFuture<InvokeModelResponse> call = getAsyncClient().invokeModel(request);
+		result.whenComplete((r, t) -> call.cancel(true));
+
+		call.whenComplete((response, error) -> {
+			if (result.isDone()) {
+				return;
+			}
+			if (error == null) {
+				try {
+					NovaResponse novaResponse = parseResponse(response.body().asUtf8String(), modelId, prompt);
+					recordSuccess(modelId, permit, novaResponse, startTime, attempt - 1);
+					result.complete(novaResponse);
+				} catch (Exception e) {
+					handleCircuitBreakerFailure(permit);
+					result.completeExceptionally(new NovaInvokerException("Unexpected error: " + e.getMessage(), e));
+				}
+				return;
+			}
+
+			Throwable cause = unwrap(error);
+			if (cause instanceof ApiCallTimeoutException && deadline.isBounded()) {
+				result.completeExceptionally(new DeadlineExceededException(modelId, deadline, cause));
+				return;
+			}
+			if (attempt < MAX_RETRIES && isRetryableFailure(cause, modelId)) {
+				long delay = calculateExponentialBackoffDelay(attempt);
+				if (!deadline.allows(delay + MIN_ATTEMPT_MS)) {
+					log.warn("Not retrying {}: {}ms backoff would overrun {}", modelId, delay, deadline);
+					result.completeExceptionally(new DeadlineExceededException(modelId, deadline, cause));
+					return;
+				}
+				log.warn("Async call to {} failed on attempt {}/{} ({}), retrying in {}ms", modelId, attempt,
+						MAX_RETRIES, cause.getMessage(), delay);
+				retryScheduler.schedule(
+						() -> attemptAsync(modelId, requestJson, prompt, attempt + 1, startTime, deadline, cause,
+								permit, result),
+						delay, TimeUnit.MILLISECONDS);
+				return;
+			}
+
+			handleCircuitBreakerFailure(permit);
+			logMetrics(modelId, 0, 0.0, System.currentTimeMillis() - startTime, attempt - 1, false);
+			String message = attempt >= MAX_RETRIES ? "All retry attempts failed" : "Bedrock service error: " + cause.getMessage();
+			result.completeExceptionally(new NovaInvokerException(message, cause));
+		});
+	}
+
+	/**
+	 * Streaming variant of {@link #invokeNovaAsync} using InvokeModelWithResponseStream.
+	 * Text deltas are handed to the listener as they arrive; when the listener returns
+	 * true the stream is cancelled and the response completes with the text received so
+	 * far (token usage is estimated when the stream is cut before its metadata event).
+	 * A failed stream is only retried if no text had been delivered yet.
+	 */
+	public CompletableFuture<NovaResponse> invokeNovaStreaming(String modelId, String prompt, int maxTokens,
+			double temperature, double topP, StreamListener listener) {
+		return invokeNovaStreaming(modelId, prompt, maxTokens, temperature, topP, listener, Deadline.none());
+	}
+
+	public CompletableFuture<NovaResponse> invokeNovaStreaming(String modelId, String prompt, int maxTokens,
+			double temperature, double topP, StreamListener listener, Deadline deadline) {
+
+		if ("TEMPLATE_MODE".equals(modelId)) {
+			NovaResponse template = createTemplateResponse(prompt, maxTokens);
+			listener.onText(template.getResponseText());
+			return CompletableFuture.completedFuture(template);
+		}
+
+		String requestJson;
+		ModelBulkhead.Permit permit;
+		try {
+			requestJson = objectMapper.writeValueAsString(buildRequestBody(prompt, maxTokens, temperature));
+			permit = acquireBulkhead(modelId);
+		} catch (NovaInvokerException e) {
+			return CompletableFuture.failedFuture(e);
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(new NovaInvokerException("Unexpected error: " + e.getMessage(), e));
+		}
+
+		CompletableFuture<NovaResponse> result = new CompletableFuture<>();
+		result.whenComplete((r, t) -> permit.release());
+		attemptStream(modelId, requestJson, prompt, listener, 1, System.currentTimeMillis(), deadline, null, permit,
+				result);
+		return result;
+	}
+
+	private void attemptStream(String modelId, String requestJson, String prompt, StreamListener listener,
+			int attempt, long startTime, Deadline deadline, Throwable lastError, ModelBulkhead.Permit permit,
+			CompletableFuture<NovaResponse> result) {
+		if (result.isDone()) {
+			return;
+		}
+		whenPermitted(modelId, deadline, lastError, result, () -> sendStream(modelId, requestJson, prompt, listener,
+				attempt, startTime, deadline, lastError, permit, result));
+	}
+
+	private void sendStream(String modelId, String requestJson, String prompt, StreamListener listener,
+			int attempt, long startTime, Deadline deadline, Throwable lastError, ModelBulkhead.Permit permit,
+			CompletableFuture<NovaResponse> result) {
+		if (result.isDone()) {
+			return;
+		}
+		if (!deadline.allows(MIN_ATTEMPT_MS)) {
+			result.completeExceptionally(new DeadlineExceededException(modelId, deadline, lastError));
+			return;
+		}
+
+		updateCallMetrics(modelId);
+		StreamState state = new StreamState();
+
+		InvokeModelWithResponseStreamRequest.Builder requestBuilder = InvokeModelWithResponseStreamRequest.builder()
+				.modelId(modelId).body(SdkBytes.fromUtf8String(requestJson)).contentType("application/json")
+				.accept("application/json");
+		if (deadline.isBounded()) {
+			requestBuilder.overrideConfiguration(o -> o.apiCallTimeout(Duration.ofMillis(deadline.remainingMillis())));
+		}
+		InvokeModelWithResponseStreamRequest request = requestBuilder.build();
+
+		InvokeModelWithResponseStreamResponseHandler handler = InvokeModelWithResponseStreamResponseHandler
+				.builder().onEventStream(publisher -> publisher.subscribe(new Subscriber<ResponseStream>() {
+					@Override
+					public void onSubscribe(Subscription subscription) {
+						state.subscription = subscription;
+						if (result.isDone()) {
+							subscription.cancel();
+						} else {
+							subscription.request(Long.MAX_VALUE);
+						}
+					}
+
+					@Override
+					public void onNext(ResponseStream event) {
+						if (state.stopped || !(event instanceof PayloadPart)) {
+							return;
+						}
+						handleStreamChunk(((PayloadPart) event).bytes().asByteArray(), state, listener);
+						if (state.stopped) {
+							state.subscription.cancel();
+							completeStream(modelId, prompt, state, attempt, startTime, permit, result);
+						}
+					}
+
+					@Override
+					public void onError(Throwable error) {
+						// Reported through the call future below
+					}
+
+					@Override
+					public void onComplete() {
+						completeStream(modelId, prompt, state, attempt, startTime, permit, result);
+					}
+				})).build();
+
+		CompletableFuture<Void> call = getAsyncClient().invokeModelWithResponseStream(request, handler);
+		result.whenComplete((r, t) -> {
+			Subscription subscription = state.subscription;
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			call.cancel(true);
+		});
+
+		call.whenComplete((ignored, error) -> {
+			if (result.isDone() || state.stopped) {
+				return;
+			}
+			if (error == null) {
+				completeStream(modelId, prompt, state, attempt, startTime, permit, result);
+				return;
+			}
+
+			Throwable cause = unwrap(error);
+			if (cause instanceof ApiCallTimeoutException && deadline.isBounded()) {
+				result.completeExceptionally(new DeadlineExceededException(modelId, deadline, cause));
+				return;
+			}
+			if (state.text.length() == 0 && attempt < MAX_RETRIES && isRetryableFailure(cause, modelId)) {
+				long delay = calculateExponentialBackoffDelay(attempt);
+				if (!deadline.allows(delay + MIN_ATTEMPT_MS)) {
+					log.warn("Not retrying stream from {}: {}ms backoff would overrun {}", modelId, delay, deadline);
+					result.completeExceptionally(new DeadlineExceededException(modelId, deadline, cause));
+					return;
+				}
+				log.warn("Stream from {} failed on attempt {}/{} ({}), retrying in {}ms", modelId, attempt,
+						MAX_RETRIES, cause.getMessage(), delay);
+				retryScheduler.schedule(() -> attemptStream(modelId, requestJson, prompt, listener, attempt + 1,
+						startTime, deadline, cause, permit, result), delay, TimeUnit.MILLISECONDS);
+				return;
+			}
+
+			handleCircuitBreakerFailure(permit);
+			logMetrics(modelId, 0, 0.0, System.currentTimeMillis() - startTime, attempt - 1, false);
+			result.completeExceptionally(new NovaInvokerException("Bedrock stream error: " + cause.getMessage(), cause));
+		});
+	}
+
+	/**
+	 * Apply one Nova stream chunk: text deltas go to the listener, usage is recorded
+	 */
+	private void handleStreamChunk(byte[] chunk, StreamState state, StreamListener listener) {
+		try {
+			JsonNode node = objectMapper.readTree(chunk);
+
+			JsonNode delta = node.path("contentBlockDelta").path("delta").path("text");
+			if (delta.isTextual()) {
+				String text = delta.asText();
+				state.text.append(text);
+				if (listener.onText(text)) {
+					state.stopped = true;
+				}
+			}
+
+			JsonNode usage = node.path("metadata").path("usage");
+			if (usage.isObject()) {
+				state.inputTokens = usage.path("inputTokens").asInt(state.inputTokens);
+				state.outputTokens = usage.path("outputTokens").asInt(state.outputTokens);
+			}
+			JsonNode metrics = node.path("amazon-bedrock-invocationMetrics");
+			if (metrics.isObject()) {
+				state.inputTokens = metrics.path("inputTokenCount").asInt(state.inputTokens);
+				state.outputTokens = metrics.path("outputTokenCount").asInt(state.outputTokens);
+			}
+		} catch (Exception e) {
+			log.warn("Skipping unreadable stream chunk: {}", e.getMessage());
+		}
+	}
+
+	private void completeStream(String modelId, String prompt, StreamState state, int attempt, long startTime,
+			ModelBulkhead.Permit permit, CompletableFuture<NovaResponse> result) {
+		if (result.isDone() || !state.finished.compareAndSet(false, true)) {
+			return;
+		}
+
+		String text = state.text.toString();
+		if (state.inputTokens > 0) {
+			TokenOptimizer.recordUsage(prompt, modelId, state.inputTokens);
+		}
+		// Output usage only matches the text when the stream ran to the end
+		if (state.outputTokens > 0 && !state.stopped) {
+			TokenOptimizer.recordUsage(text, modelId, state.outputTokens);
+		}
+		int inputTokens = state.inputTokens > 0 ? state.inputTokens : estimateTokensFromContent(prompt, modelId);
+		int outputTokens = state.outputTokens > 0 ? state.outputTokens : estimateTokensFromContent(text, modelId);
+
+		Map<String, Object> metadata = new HashMap<>();
+		metadata.put("streamed", true);
+		metadata.put("stoppedEarly", state.stopped);
+
+		NovaResponse novaResponse = NovaResponse.builder().responseText(text).inputTokens(inputTokens)
+				.outputTokens(outputTokens).totalTokens(inputTokens + outputTokens)
+				.estimatedCost(calculateCost(inputTokens, outputTokens)).modelId(modelId).successful(true)
+				.timestamp(System.currentTimeMillis()).metadata(metadata).build();
+
+		if (state.stopped) {
+			log.info("Stream from {} stopped early after {} chars", modelId, text.length());
+		}
+		recordSuccess(modelId, permit, novaResponse, startTime, attempt - 1);
+		result.complete(novaResponse);
+	}
+
+	/**
+	 * Receives streamed model output
+	 */
+	public interface StreamListener {
+		/**
+		 * Handle the next text delta. Return true to stop the stream early.
+		 */
+		boolean onText(String delta);
+	}
+
+	/**
+	 * Per-attempt stream state; onNext calls are serialized by the publisher
+	 */
+	private static final class StreamState {
+		final StringBuilder text = new StringBuilder();
+		final AtomicBoolean finished = new AtomicBoolean();
+		volatile Subscription subscription;
+		volatile boolean stopped;
+		volatile int inputTokens;
+		volatile int outputTokens;
+	}
+
+	/**
+	 * Shared retry classification for the async path (mirrors the catch blocks of invokeNova)
+	 */
+	private boolean isRetryableFailure(Throwable cause, String modelId) {
+		if (cause instanceof ThrottlingException) {
+			throttleCount.computeIfAbsent(modelId, k -> new AtomicInteger()).incrementAndGet();
+			modelRouter.recordThrottle(modelId);
+			return true;
+		}
+		if (cause instanceof ModelTimeoutException) {
+			return true;
+		}
+		if (cause instanceof BedrockRuntimeException) {
+			return isRetryableError((BedrockRuntimeException) cause);
+		}
+		if (cause instanceof SdkServiceException) {
+			return ((SdkServiceException) cause).statusCode() >= 500;
+		}
+		if (cause instanceof SdkClientException) {
+			return isNetworkError((SdkClientException) cause);
+		}
+		return false;
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		Throwable cause = error;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+
+	/**
+	 * Reset the breaker and record metrics after a successful call
+	 */
+	private void recordSuccess(String modelId, ModelBulkhead.Permit permit, NovaResponse novaResponse,
+			long startTime, int retryCount) {
+		permit.recordSuccess();
+
+		long latency = System.currentTimeMillis() - startTime;
+		logMetrics(modelId, novaResponse.getTotalTokens(), novaResponse.getEstimatedCost(), latency, retryCount, true);
+	}
+
 	/**
 	 * Create template-based response for fallback scenarios
 	 */
 	private NovaResponse createTemplateResponse(String prompt, int maxTokens) {
 	    log.info("Using template mode for fallback suggestion");
 	    
-	    // Extract issue type from prompt for better template matching
-	    String issueType = extractIssueType(prompt);
-	    String templateResponse = generateTemplateResponse(issueType, prompt);
+	    // Only the prompt reaches this point; its header line names the issue type
+	    int headerEnd = prompt.indexOf('\n');
+	    String header = headerEnd >= 0 ? prompt.substring(0, headerEnd) : prompt;
+	    String templateResponse = TemplateEngine.getInstance().resolve(header).getJson();
 	    
 	 // Create response object using builder pattern
 	    return NovaResponse.builder()
@@ -272,112 +926,6 @@ public class NovaInvokerService {
 	    
 	}
 
-	/**
-	 * Extract issue type from prompt for template matching
-	 */
-	private String extractIssueType(String prompt) {
-	    String lowerPrompt = prompt.toLowerCase();
-	    
-	    if (lowerPrompt.contains("sql injection") || lowerPrompt.contains("sqli")) {
-	        return "SQL_INJECTION";
-	    } else if (lowerPrompt.contains("xss") || lowerPrompt.contains("cross-site scripting")) {
-	        return "XSS";
-	    } else if (lowerPrompt.contains("hardcoded") && lowerPrompt.contains("credential")) {
-	        return "HARDCODED_CREDENTIALS";
-	    } else if (lowerPrompt.contains("loop") || lowerPrompt.contains("iteration")) {
-	        return "INEFFICIENT_LOOP";
-	    } else if (lowerPrompt.contains("memory leak") || lowerPrompt.contains("resource")) {
-	        return "MEMORY_LEAK";
-	    } else if (lowerPrompt.contains("database") || lowerPrompt.contains("query")) {
-	        return "DATABASE_N_PLUS_1";
-	    }
-	    
-	    return "GENERIC";
-	}
-
-	/**
-	 * Generate template-based suggestion from prompt analysis
-	 */
-	private String generateTemplateResponse(String issueType, String prompt) {
-	    Map<String, String> templates = Map.of(
-	        "SQL_INJECTION", """
-	        {
-	          "immediateFix": {
-	            "title": "Use Parameterized Queries",
-	            "searchCode": "String query = \\"SELECT * FROM users WHERE id = '\\" + userId + \\"'\\";",
-	            "replaceCode": "String query = \\"SELECT * FROM users WHERE id = ?\\"; PreparedStatement stmt = connection.prepareStatement(query); stmt.setString(1, userId);",
-	            "explanation": "Parameterized queries prevent SQL injection by separating code from data."
-	          },
-	          "bestPractice": {
-	            "title": "Always Use Prepared Statements",
-	            "code": "PreparedStatement stmt = connection.prepareStatement(\\"SELECT * FROM users WHERE id = ?\\"); stmt.setString(1, userId);",
-	            "benefits": ["Prevents SQL injection", "Better performance", "Cleaner code"]
-	          },
-	          "testing": {
-	            "testCase": "@Test public void testSqlInjectionPrevention() { String maliciousInput = \\"'; DROP TABLE users; --\\"; }",
-	            "validationSteps": ["Test with malicious input", "Verify database integrity", "Check query logs"]
-	          },
-	          "prevention": {
-	            "guidelines": ["Always use parameterized queries", "Validate input length and format", "Use least privilege database accounts"],
-	            "tools": [{"name": "SonarQube", "description": "Static analysis for SQL injection detection"}],
-	            "codeReviewChecklist": ["Check for string concatenation in SQL", "Verify parameterized queries usage", "Review input validation"]
-	          }
-	        }
-	        """,
-	        
-	        "XSS", """
-	        {
-	          "immediateFix": {
-	            "title": "Sanitize Input and Encode Output",
-	            "searchCode": "response.getWriter().println(\\"<p>\\" + userInput + \\"</p>\\");",
-	            "replaceCode": "String safeInput = StringEscapeUtils.escapeHtml4(userInput); response.getWriter().println(\\"<p>\\" + safeInput + \\"</p>\\");",
-	            "explanation": "HTML escaping converts dangerous characters to safe entities."
-	          },
-	          "bestPractice": {
-	            "title": "Input Validation and Output Encoding",
-	            "code": "String safeOutput = StringEscapeUtils.escapeHtml4(userInput);",
-	            "benefits": ["Prevents XSS attacks", "Secure data handling", "User safety"]
-	          },
-	          "testing": {
-	            "testCase": "@Test public void testXssPrevention() { String maliciousInput = \\"<script>alert('xss')</script>\\"; }",
-	            "validationSteps": ["Test with malicious scripts", "Verify output encoding", "Check CSP headers"]
-	          },
-	          "prevention": {
-	            "guidelines": ["Always encode output", "Validate input format", "Use Content Security Policy"],
-	            "tools": [{"name": "OWASP ZAP", "description": "Security testing for XSS vulnerabilities"}],
-	            "codeReviewChecklist": ["Check output encoding", "Verify input validation", "Review CSP implementation"]
-	          }
-	        }
-	        """
-	    );
-	    
-	    return templates.getOrDefault(issueType, 
-	        """
-	        {
-	          "immediateFix": {
-	            "title": "Review and Apply Best Practices",
-	            "searchCode": "// Review the identified code section",
-	            "replaceCode": "// Apply appropriate security measures and best practices",
-	            "explanation": "This issue requires manual review and application of security best practices."
-	          },
-	          "bestPractice": {
-	            "title": "Follow Security Guidelines",
-	            "code": "// Implement according to OWASP guidelines",
-	            "benefits": ["Improved security", "Better maintainability", "Reduced vulnerabilities"]
-	          },
-	          "testing": {
-	            "testCase": "// Add appropriate unit tests",
-	            "validationSteps": ["Review code changes", "Test functionality", "Verify security measures"]
-	          },
-	          "prevention": {
-	            "guidelines": ["Follow OWASP guidelines", "Regular security reviews", "Use static analysis tools"],
-	            "tools": [{"name": "Static Analysis", "description": "Automated security scanning"}],
-	            "codeReviewChecklist": ["Security implications", "Best practices compliance", "Test coverage"]
-	          }
-	        }
-	        """
-	    );
-	}
 	/**
 	 * Build request body for Nova models
 	 */
@@ -401,16 +949,17 @@ public class NovaInvokerService {
 	}
 
 	/**
-	 * Parse Nova response
+	 * Parse Nova response. Reported usage calibrates the token estimates; missing usage
+	 * is estimated from the prompt and the response text.
 	 */
-	private NovaResponse parseResponse(String responseBody, String modelId) throws Exception {
-	    Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
+	private NovaResponse parseResponse(String responseBody, String modelId, String prompt) throws Exception {
+	    Map<?, ?> responseMap = objectMapper.readValue(responseBody, Map.class);
 
 	    // Extract content from Nova response format
 	    String responseText = extractResponseText(responseMap);
 
 	    // Extract token usage with enhanced extraction
-	    Map<String, Object> usage = (Map<String, Object>) responseMap.get("usage");
+	    Map<?, ?> usage = (Map<?, ?>) responseMap.get("usage");
 	    int inputTokens = 0;
 	    int outputTokens = 0;
 	    int totalTokens = 0;
@@ -421,10 +970,17 @@ public class NovaInvokerService {
 	        outputTokens = getIntegerValue(usage, "output_tokens", "outputTokens");
 	        totalTokens = getIntegerValue(usage, "total_tokens", "totalTokens");
 	        
-	        // If individual tokens are 0 but total exists, estimate split
+	        // If individual tokens are 0 but total exists, split it by the estimated prompt size
 	        if (inputTokens == 0 && outputTokens == 0 && totalTokens > 0) {
-	            inputTokens = (int) (totalTokens * 0.6); // Typical input ratio
-	            outputTokens = (int) (totalTokens * 0.4); // Typical output ratio
+	            inputTokens = Math.min(totalTokens, estimateTokensFromContent(prompt, modelId));
+	            outputTokens = totalTokens - inputTokens;
+	        } else {
+	            if (inputTokens > 0) {
+	                TokenOptimizer.recordUsage(prompt, modelId, inputTokens);
+	            }
+	            if (outputTokens > 0) {
+	                TokenOptimizer.recordUsage(responseText, modelId, outputTokens);
+	            }
 	        }
 	        
 	        // Calculate total if not provided but individuals are
@@ -436,8 +992,8 @@ public class NovaInvokerService {
 	    // Fallback estimation if no usage data available
 	    if (inputTokens == 0 && outputTokens == 0) {
 	        // Estimate based on content length as last resort
-	        inputTokens = Math.max(100, estimateTokensFromContent(responseText));
-	        outputTokens = Math.max(50, responseText.length() / 4);
+	        inputTokens = estimateTokensFromContent(prompt, modelId);
+	        outputTokens = estimateTokensFromContent(responseText, modelId);
 	        totalTokens = inputTokens + outputTokens;
 	        log.warn("No token usage data found for model {}, using estimation: input={}, output={}", 
 	                modelId, inputTokens, outputTokens);
@@ -482,20 +1038,18 @@ public class NovaInvokerService {
 	}
 
 	/**
-	 * Estimate token count from content length (rough approximation)
+	 * Estimate token count for content the model did not report usage for
 	 */
-	private int estimateTokensFromContent(String content) {
+	private int estimateTokensFromContent(String content, String modelId) {
 	    if (content == null || content.trim().isEmpty()) {
 	        return 0;
 	    }
-	    // Rough estimation: 1 token per 4 characters for English text
-	    // This is a fallback when actual token counts aren't available
-	    return Math.max(50, content.length() / 4);
+	    return TokenOptimizer.estimateTokens(content, modelId);
 	}
 	
 	private int getIntegerValue(Object usage, String... fieldNames) {
 	    if (usage instanceof Map) {
-	        Map<String, Object> usageMap = (Map<String, Object>) usage;
+	        Map<?, ?> usageMap = (Map<?, ?>) usage;
 	        for (String fieldName : fieldNames) {
 	            Object value = usageMap.get(fieldName);
 	            if (value instanceof Number) {
@@ -526,18 +1080,19 @@ public class NovaInvokerService {
 	        
 	        // Fallback for Map-based response (legacy)
 	        if (response instanceof Map) {
-	            Map<String, Object> responseMap = (Map<String, Object>) response;
-	            Map<String, Object> output = (Map<String, Object>) responseMap.get("output");
+	            Map<?, ?> responseMap = (Map<?, ?>) response;
+	            Map<?, ?> output = (Map<?, ?>) responseMap.get("output");
 	            if (output != null) {
-	                Map<String, Object> message = (Map<String, Object>) output.get("message");
+	                Map<?, ?> message = (Map<?, ?>) output.get("message");
 	                if (message != null) {
-	                    List<Map<String, Object>> content = (List<Map<String, Object>>) message.get("content");
+	                    List<?> content = (List<?>) message.get("content");
 	                    if (content != null && !content.isEmpty()) {
-	                        return (String) content.get(0).get("text");
+	                        return (String) ((Map<?, ?>) content.get(0)).get("text");
 	                    }
 	                }
 	            }
-	            return (String) responseMap.getOrDefault("text", "No response text found");
+	            Object text = responseMap.get("text");
+	            return text != null ? (String) text : "No response text found";
 	        }
 	        
 	        return response.toString();
@@ -565,77 +1120,94 @@ public class NovaInvokerService {
 	}
 
 	/**
-	 * Enforce rate limiting with sliding window
+	 * Block the calling thread until the model's token bucket grants a permit, giving up
+	 * once waiting longer would leave too little time for the call itself. A permit given
+	 * up on (timed out, interrupted by a scope shutdown) is handed back.
 	 */
-	private void enforceRateLimit(String callKey) throws InterruptedException {
-		synchronized (callTimestamps) {
-			long currentTime = System.currentTimeMillis();
-
-			// Remove timestamps older than the window
-			while (!callTimestamps.isEmpty()
-					&& currentTime - callTimestamps.getFirst() > RATE_LIMIT_WINDOW_SIZE * MIN_CALL_INTERVAL_MS) {
-				callTimestamps.removeFirst();
+	private void awaitPermit(String modelId, Deadline deadline) throws InterruptedException, DeadlineExceededException {
+		long maxWaitMs = deadline.isBounded() ? Math.max(0L, deadline.remainingMillis() - MIN_ATTEMPT_MS) : -1L;
+		CompletableFuture<Void> permit = maxWaitMs >= 0 ? rateLimiter.acquire(modelId, maxWaitMs)
+				: rateLimiter.acquire(modelId);
+		boolean granted = false;
+		try {
+			if (maxWaitMs >= 0) {
+				permit.get(maxWaitMs, TimeUnit.MILLISECONDS);
+			} else {
+				permit.get();
 			}
-
-			// If we've made too many calls recently, wait
-			if (callTimestamps.size() >= RATE_LIMIT_WINDOW_SIZE) {
-				long oldestCall = callTimestamps.getFirst();
-				long waitTime = (oldestCall + RATE_LIMIT_WINDOW_SIZE * MIN_CALL_INTERVAL_MS) - currentTime;
-				if (waitTime > 0) {
-					log.info("Rate limiting: waiting {}ms before next call", waitTime);
-					Thread.sleep(waitTime);
-					// Recursive call to recheck after waiting
-					enforceRateLimit(callKey);
-					return;
-				}
+			granted = true;
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException(modelId, deadline, null);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TimeoutException) {
+				throw new DeadlineExceededException(modelId, deadline, null);
 			}
-
-			// Add current timestamp
-			callTimestamps.addLast(currentTime);
-
-			// Also enforce minimum interval between consecutive calls
-			Long lastCall = lastCallTime.get(callKey);
-			if (lastCall != null) {
-				long timeSinceLastCall = currentTime - lastCall;
-				if (timeSinceLastCall < MIN_CALL_INTERVAL_MS) {
-					Thread.sleep(MIN_CALL_INTERVAL_MS - timeSinceLastCall);
-				}
+			throw new IllegalStateException("Rate limiter failed", e.getCause());
+		} finally {
+			if (!granted) {
+				permit.cancel(false);
 			}
-			lastCallTime.put(callKey, System.currentTimeMillis());
 		}
 	}
 
 	/**
-	 * Check circuit breaker state
+	 * Take a slot in the model's bulkhead, failing fast when its breaker is open,
+	 * its half-open probe is already running, or all its slots are busy
 	 */
-	private void checkCircuitBreaker() throws NovaInvokerException {
-		if (circuitState == CircuitState.OPEN) {
-			long timeSinceOpen = System.currentTimeMillis() - circuitOpenTime.get();
-			if (timeSinceOpen > CIRCUIT_RESET_TIMEOUT_MS) {
-				log.info("Circuit breaker: transitioning to HALF_OPEN state");
-				circuitState = CircuitState.HALF_OPEN;
-			} else {
-				throw new NovaInvokerException(String.format("Circuit breaker is OPEN. Service unavailable for %d ms",
-						CIRCUIT_RESET_TIMEOUT_MS - timeSinceOpen));
-			}
+	private ModelBulkhead.Permit acquireBulkhead(String modelId) throws ModelUnavailableException {
+		ModelBulkhead bulkhead = bulkheadFor(modelId);
+		ModelBulkhead.Permit permit = bulkhead.tryAcquire();
+		if (permit == null) {
+			throw new ModelUnavailableException(modelId, bulkhead.getState() == ModelBulkhead.State.CLOSED
+					? "bulkhead full"
+					: "circuit " + bulkhead.getState());
 		}
+		return permit;
 	}
 
 	/**
-	 * Handle circuit breaker failure
+	 * Calls to the model worth having in flight at once: what its rate limit admits over
+	 * one call's expected duration, never more than its bulkhead lets through
 	 */
-	private void handleCircuitBreakerFailure() {
-		if (!CIRCUIT_BREAKER_ENABLED) {
-			return;
+	public int callConcurrency(String modelId) {
+		if ("TEMPLATE_MODE".equals(modelId)) {
+			return 1;
 		}
+		return Math.max(1, Math.min(bulkheadFor(modelId).getMaxConcurrent(),
+				rateLimiter.sustainableConcurrency(modelId, modelRouter.expectedLatencyMs(modelId))));
+	}
 
-		int failures = consecutiveFailures.incrementAndGet();
+	private ModelBulkhead bulkheadFor(String modelId) {
+		return bulkheads.computeIfAbsent(modelId,
+				id -> new ModelBulkhead(id, BULKHEAD_LIMITS.getOrDefault(id, BULKHEAD_DEFAULT_LIMIT),
+						CIRCUIT_BREAKER_ENABLED, CIRCUIT_WINDOW_SIZE, CIRCUIT_MIN_CALLS, CIRCUIT_FAILURE_RATE,
+						CIRCUIT_RESET_TIMEOUT_MS));
+	}
 
-		if (failures >= FAILURE_THRESHOLD && circuitState != CircuitState.OPEN) {
-			log.warn("Circuit breaker: opening circuit after {} consecutive failures", failures);
-			circuitState = CircuitState.OPEN;
-			circuitOpenTime.set(System.currentTimeMillis());
+	/**
+	 * Count a failed call against the model's breaker, through the permit it was made with
+	 */
+	private void handleCircuitBreakerFailure(ModelBulkhead.Permit permit) {
+		permit.recordFailure();
+	}
+
+	/**
+	 * Parse BULKHEAD_LIMITS ("model=maxConcurrent,..."; model IDs contain ':', so split on the last '=')
+	 */
+	private static Map<String, Integer> parseBulkheadLimits(String spec) {
+		Map<String, Integer> limits = new HashMap<>();
+		if (spec == null || spec.isBlank()) {
+			return limits;
+		}
+		for (String entry : spec.split(",")) {
+			int eq = entry.lastIndexOf('=');
+			try {
+				limits.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+			} catch (RuntimeException e) {
+				log.warn("Ignoring malformed BULKHEAD_LIMITS entry: {}", entry);
+			}
 		}
+		return limits;
 	}
 
 	/**
@@ -658,8 +1230,9 @@ public class NovaInvokerService {
 	/**
 	 * Update call metrics for monitoring
 	 */
-	private void updateCallMetrics(String callKey) {
-		callCount.computeIfAbsent(callKey, k -> new AtomicInteger()).incrementAndGet();
+	private void updateCallMetrics(String modelId) {
+		// Keyed like totalLatency, so that averageLatencies can divide one by the other
+		callCount.computeIfAbsent(modelId, k -> new AtomicInteger()).incrementAndGet();
 	}
 
 	/**
@@ -667,10 +1240,11 @@ public class NovaInvokerService {
 	 */
 	private void logMetrics(String modelId, int tokens, double cost, long latency, int retryCount, boolean success) {
 		log.info("MONITORING_METRIC|ModelId:{}|Tokens:{}|Cost:{}|Latency:{}|RetryCount:{}|Success:{}|CircuitState:{}",
-				modelId, tokens, cost, latency, retryCount, success, circuitState);
+				modelId, tokens, cost, latency, retryCount, success, bulkheadFor(modelId).getState());
 
 		// Update latency tracking
 		totalLatency.computeIfAbsent(modelId, k -> new AtomicLong()).addAndGet(latency);
+		modelRouter.recordCall(modelId, latency, tokens, success);
 	}
 
 	/**
@@ -697,8 +1271,9 @@ public class NovaInvokerService {
 		throttleCount.forEach((key, atomicValue) -> throttleCountSnapshot.put(key, atomicValue.get()));
 		stats.put("throttleCounts", throttleCountSnapshot);
 
-		stats.put("circuitState", circuitState.toString());
-		stats.put("consecutiveFailures", consecutiveFailures.get());
+		Map<String, Object> bulkheadSnapshot = new HashMap<>();
+		bulkheads.forEach((model, bulkhead) -> bulkheadSnapshot.put(model, bulkhead.getStatistics()));
+		stats.put("bulkheads", bulkheadSnapshot);
 
 		// Calculate average latencies
 		Map<String, Double> avgLatencies = new HashMap<>();
@@ -712,6 +1287,17 @@ public class NovaInvokerService {
 		}
 		stats.put("averageLatencies", avgLatencies);
 
+		Map<String, Object> hedging = new HashMap<>();
+		long calls = hedgeCalls.get();
+		long sent = hedgesSent.get();
+		hedging.put("calls", calls);
+		hedging.put("hedged", sent);
+		hedging.put("won", hedgeWins.get());
+		hedging.put("declined", hedgesDeclined.get());
+		hedging.put("hedgeRate", calls > 0 ? (double) sent / calls : 0.0);
+		hedging.put("winRate", sent > 0 ? (double) hedgeWins.get() / sent : 0.0);
+		stats.put("hedging", hedging);
+
 		return stats;
 	}
 
@@ -722,9 +1308,10 @@ public class NovaInvokerService {
 		callCount.clear();
 		throttleCount.clear();
 		totalLatency.clear();
-		consecutiveFailures.set(0);
-		callTimestamps.clear();
-		lastCallTime.clear();
+		hedgeCalls.set(0);
+		hedgesSent.set(0);
+		hedgeWins.set(0);
+		hedgesDeclined.set(0);
 	}
 
 	/**
@@ -876,6 +1463,8 @@ public class NovaInvokerService {
 	 * Custom exception for Nova invocation errors
 	 */
 	public static class NovaInvokerException extends Exception {
+		private static final long serialVersionUID = 1L;
+
 		public NovaInvokerException(String message) {
 			super(message);
 		}
@@ -884,4 +1473,42 @@ public class NovaInvokerService {
 			super(message, cause);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The model rejected the call up front (breaker open or bulkhead full); another
+	 * model may still be able to serve it
+	 */
+	public static class ModelUnavailableException extends NovaInvokerException {
+		private static final long serialVersionUID = 1L;
+
+		private final String modelId;
+
+		public ModelUnavailableException(String modelId, String reason) {
+			super(String.format("Model %s unavailable: %s", modelId, reason));
+			this.modelId = modelId;
+		}
+
+		public String getModelId() {
+			return modelId;
+		}
+	}
+
+	/**
+	 * The call could not be completed before its deadline; it was not started, not
+	 * retried, or cut short by the SDK call timeout. Not counted against the model.
+	 */
+	public static class DeadlineExceededException extends NovaInvokerException {
+		private static final long serialVersionUID = 1L;
+
+		private final String modelId;
+
+		public DeadlineExceededException(String modelId, Deadline deadline, Throwable lastError) {
+			super(String.format("Deadline exceeded for %s (%s)", modelId, deadline), lastError);
+			this.modelId = modelId;
+		}
+
+		public String getModelId() {
+			return modelId;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/RateLimiter.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Rate limiter for outbound model calls, keyed by model ID
+ */
+public interface RateLimiter {
+
+    /**
+     * Take a permit for the key if one is available right now, never blocks
+     */
+    boolean tryAcquire(String key);
+
+    /**
+     * Reserve a permit for the key. The returned future completes once the permit
+     * becomes usable; it is already complete when a permit is free. Cancelling it
+     * before then hands the permit back.
+     */
+    CompletableFuture<Void> acquire(String key);
+
+    /**
+     * Like {@link #acquire(String)}, but reserves nothing and fails the future with a
+     * TimeoutException when the permit would not be usable within maxWaitMillis
+     */
+    default CompletableFuture<Void> acquire(String key, long maxWaitMillis) {
+        if (millisUntilAvailable(key) > maxWaitMillis) {
+            return CompletableFuture.failedFuture(new TimeoutException("No permit for " + key + " within "
+                    + maxWaitMillis + "ms"));
+        }
+        return acquire(key);
+    }
+
+    /**
+     * Time until a permit for the key would be available (0 if available now)
+     */
+    long millisUntilAvailable(String key);
+
+    /**
+     * Calls for the key that can usefully be in flight at once when each takes
+     * callMillis; more would only wait for permits
+     */
+    default int sustainableConcurrency(String key, long callMillis) {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,21 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/ShardInvoker.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.somdiproy.lambda.suggestions.model.SuggestionRequest;
+import com.somdiproy.lambda.suggestions.model.SuggestionResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs one shard of a fanned-out analysis as a worker invocation.
+ * The returned future completes with the worker's response, or exceptionally if the
+ * worker could not be run; the coordinator treats the shard's issues as unprocessed then.
+ */
+public interface ShardInvoker {
+
+    /**
+     * @param shard     request carrying the shard's issues and a shardId
+     * @param timeoutMs time the worker has before the coordinator stops waiting for it
+     */
+    CompletableFuture<SuggestionResponse> invoke(SuggestionRequest shard, long timeoutMs);
+}
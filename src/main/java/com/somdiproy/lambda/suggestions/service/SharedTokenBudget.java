@@ -0,0 +1,70 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/SharedTokenBudget.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token budget shared by all shards of a fanned-out analysis.
+ *
+ * The remaining budget lives on the analysis record. Before an issue is dispatched its
+ * worst-case token use is reserved with a conditional decrement that fails once the
+ * budget cannot cover it; when the suggestion is ready the reservation is settled
+ * against the tokens actually used. Reservations not settled by the end of the run
+ * (issues that were never dispatched) are handed back.
+ */
+public class SharedTokenBudget {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SharedTokenBudget.class);
+
+    private final DynamoDBService dynamoDBService;
+    private final String analysisId;
+    private final Map<String, Integer> reservations = new ConcurrentHashMap<>();
+
+    public SharedTokenBudget(DynamoDBService dynamoDBService, String analysisId) {
+        this.dynamoDBService = dynamoDBService;
+        this.analysisId = analysisId;
+    }
+
+    /**
+     * Reserve tokens for the given issue; false if the shared budget is exhausted
+     */
+    public boolean reserve(String issueId, int tokens) {
+        if (tokens <= 0) {
+            return true;
+        }
+        if (!dynamoDBService.reserveTokens(analysisId, tokens)) {
+            return false;
+        }
+        reservations.merge(issueId, tokens, Integer::sum);
+        return true;
+    }
+
+    /**
+     * Replace the issue's reservation by the tokens it actually used
+     */
+    public void settle(String issueId, int actualTokens) {
+        Integer reserved = reservations.remove(issueId);
+        int delta = (reserved != null ? reserved : 0) - actualTokens;
+        if (delta != 0) {
+            dynamoDBService.adjustTokenBudget(analysisId, delta);
+        }
+    }
+
+    /**
+     * Hand back every reservation that was not settled
+     */
+    public void releaseAll() {
+        int unused = 0;
+        for (String issueId : reservations.keySet()) {
+            Integer reserved = reservations.remove(issueId);
+            if (reserved != null) {
+                unused += reserved;
+            }
+        }
+        if (unused > 0) {
+            log.info("Returning {} unused reserved tokens to the budget of {}", unused, analysisId);
+            dynamoDBService.adjustTokenBudget(analysisId, unused);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/SuggestionCache.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Content-addressed cache of parsed suggestions.
+ *
+ * Keyed on a SHA-256 of the normalized prompt inputs (issue type, language, category,
+ * description, whitespace-normalized code context sent for the issue, model ID), so the
+ * same finding seen again in a later scan reuses the earlier suggestion instead of paying
+ * for another Nova call. The context rather than the snippet and line is hashed: edits
+ * elsewhere in the file that move the finding still hit, while two findings in one
+ * snippet whose prompts show different code do not share a suggestion.
+ * Tier 1 is a bounded in-memory LRU that lives as long as the Lambda container;
+ * tier 2 is an optional DynamoDB table (SUGGESTION_CACHE_TABLE) with a TTL attribute.
+ */
+public class SuggestionCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SuggestionCache.class);
+
+    private final int maxEntries;
+    private final Map<String, DeveloperSuggestion> memory;
+    private final DynamoDBService dynamoDBService;
+    private final String tableName;
+    private final long ttlSeconds;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Hit/miss counters, with the tokens and dollars the original calls cost
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong tableHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+    private final DoubleAdder costSaved = new DoubleAdder();
+
+    public SuggestionCache(int maxEntries, DynamoDBService dynamoDBService, String tableName, long ttlSeconds) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.dynamoDBService = dynamoDBService;
+        this.tableName = tableName;
+        this.ttlSeconds = ttlSeconds;
+        this.memory = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DeveloperSuggestion> eldest) {
+                return size() > SuggestionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Build a cache from SUGGESTION_CACHE_SIZE, SUGGESTION_CACHE_TABLE and SUGGESTION_CACHE_TTL_HOURS
+     */
+    public static SuggestionCache fromEnvironment(DynamoDBService dynamoDBService) {
+        int size = Integer.parseInt(System.getenv().getOrDefault("SUGGESTION_CACHE_SIZE", "500"));
+        String table = System.getenv("SUGGESTION_CACHE_TABLE");
+        long ttlHours = Long.parseLong(System.getenv().getOrDefault("SUGGESTION_CACHE_TTL_HOURS", "168"));
+        return new SuggestionCache(size, table != null && !table.isBlank() ? dynamoDBService : null, table,
+                ttlHours * 3600);
+    }
+
+    /**
+     * Look up a suggestion for the issue and return it re-targeted at this issue, or null
+     *
+     * @param context the code sent with the issue in its prompt
+     */
+    public DeveloperSuggestion get(Map<String, Object> issue, String category, String modelId, String context) {
+        String key = keyFor(issue, category, modelId, context);
+
+        DeveloperSuggestion cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return recordHit(cached, issue, category);
+        }
+
+        if (dynamoDBService != null) {
+            String payload = dynamoDBService.getCachedSuggestion(tableName, key);
+            if (payload != null) {
+                try {
+                    cached = objectMapper.readValue(payload, DeveloperSuggestion.class);
+                    synchronized (memory) {
+                        memory.put(key, cached);
+                    }
+                    tableHits.incrementAndGet();
+                    return recordHit(cached, issue, category);
+                } catch (Exception e) {
+                    log.warn("Discarding unreadable suggestion cache entry {}: {}", key, e.getMessage());
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a model-generated suggestion. Fallbacks and template output are not cached.
+     */
+    public void put(Map<String, Object> issue, String category, String modelId, String context,
+                    DeveloperSuggestion suggestion) {
+        if (suggestion == null || !isCacheable(suggestion)) {
+            return;
+        }
+
+        String key = keyFor(issue, category, modelId, context);
+        synchronized (memory) {
+            memory.put(key, suggestion);
+        }
+
+        if (dynamoDBService != null) {
+            try {
+                long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+                dynamoDBService.putCachedSuggestion(tableName, key, objectMapper.writeValueAsString(suggestion),
+                        expiresAt);
+            } catch (Exception e) {
+                log.warn("Failed to serialize suggestion for cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cache statistics for response metadata and monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long hits = memoryHits.get() + tableHits.get();
+        long total = hits + misses.get();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("tableHits", tableHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        stats.put("tokensSaved", tokensSaved.get());
+        stats.put("costSaved", costSaved.sum());
+        synchronized (memory) {
+            stats.put("entries", memory.size());
+        }
+        stats.put("tableEnabled", dynamoDBService != null);
+        return stats;
+    }
+
+    private DeveloperSuggestion recordHit(DeveloperSuggestion cached, Map<String, Object> issue, String category) {
+        tokensSaved.addAndGet(cached.getTokensUsed() != null ? cached.getTokensUsed() : 0);
+        costSaved.add(cached.getCost() != null ? cached.getCost() : 0.0);
+
+        // Same fix content, but attributed to this issue and free of charge
+        return cached.toBuilder()
+                .issueId((String) issue.get("id"))
+                .issueCategory(category != null ? category : (String) issue.get("category"))
+                .issueSeverity((String) issue.get("severity"))
+                .file((String) issue.get("file"))
+                .line(parseLine(issue.get("line")))
+                .tokensUsed(0)
+                .cost(0.0)
+                .timestamp(System.currentTimeMillis())
+                .modelUsed(cached.getModelUsed() + "-cached")
+                .build();
+    }
+
+    /**
+     * Issue line as a number; a missing or malformed one stays null, as in a fresh
+     * suggestion, instead of failing the hit
+     */
+    private static Integer parseLine(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private boolean isCacheable(DeveloperSuggestion suggestion) {
+        String model = suggestion.getModelUsed();
+        return model != null && !model.contains("fallback") && !model.startsWith("TEMPLATE_MODE")
+                && !model.endsWith("-cached");
+    }
+
+    static String keyFor(Map<String, Object> issue, String category, String modelId, String context) {
+        StringBuilder material = new StringBuilder(256);
+        material.append(normalizeToken(issue.get("type"))).append('\u0000')
+                .append(normalizeToken(issue.get("language"))).append('\u0000')
+                .append(normalizeToken(category)).append('\u0000')
+                .append(modelId).append('\u0000');
+        appendNormalizedCode(material, (String) issue.get("description"));
+        material.append('\u0000');
+        appendNormalizedCode(material, context);
+        return sha256Hex(material.toString());
+    }
+
+    private static String normalizeToken(Object value) {
+        return value == null ? "" : value.toString().trim().toLowerCase();
+    }
+
+    /**
+     * Collapse every whitespace run to a single space so formatting-only changes still hit
+     */
+    private static void appendNormalizedCode(StringBuilder out, String code) {
+        if (code == null) {
+            return;
+        }
+        boolean pendingSpace = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && out.length() > 0 && out.charAt(out.length() - 1) != '\u0000') {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            out.append(c);
+        }
+    }
+
+    private static String sha256Hex(String material) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
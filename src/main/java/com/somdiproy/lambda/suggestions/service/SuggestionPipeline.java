@@ -0,0 +1,325 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/SuggestionPipeline.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded-concurrency pipeline for suggestion generation.
+ * Keeps up to maxInFlight work units in flight and hands each suggestion to the sink
+ * as it completes. A unit is one issue, or several issues packed into a single
+ * model call. Call pacing is done per model by the invoker's RateLimiter.
+ *
+ * Units run as children of the analysis scope. When the deadline or the token budget
+ * is hit the scope is shut down, in-flight units are cancelled and the result holds
+ * the suggestions collected until then, in dispatch order.
+ *
+ * Units are dispatched in the given order, except that a unit whose expected run time
+ * no longer fits before the drain cutoff is skipped in favour of later, quicker ones
+ * (template-served units, say), so the remaining time is spent on work that can finish.
+ */
+public class SuggestionPipeline {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SuggestionPipeline.class);
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    public SuggestionPipeline(ExecutorService executor, int maxInFlight) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Run the work units through the worker.
+     *
+     * @param units           work units in dispatch order
+     * @param worker          generates the suggestions for one unit
+     * @param admission       evaluated before dispatch (reserves the unit's tokens), false leaves the
+     *                        unit unprocessed and marks the budget exhausted
+     * @param expectedLatency expected run time of a unit in ms, checked against the time left at dispatch
+     * @param sink            receives each suggestion as soon as it completes
+     * @param remainingMillis remaining Lambda time
+     * @param dispatchCutoffMs stop dispatching once remaining time drops below this
+     * @param drainCutoffMs   cancel in-flight work once remaining time drops below this
+     * @param tokenLimit      stop dispatching once completed work used more tokens than this
+     * @param scope           scope the units run in; shut down when the deadline or budget is hit
+     */
+    public Result run(List<List<Map<String, Object>>> units,
+                      Function<List<Map<String, Object>>, List<DeveloperSuggestion>> worker,
+                      Predicate<List<Map<String, Object>>> admission,
+                      ToLongFunction<List<Map<String, Object>>> expectedLatency,
+                      Consumer<DeveloperSuggestion> sink,
+                      LongSupplier remainingMillis,
+                      long dispatchCutoffMs, long drainCutoffMs, int tokenLimit, AnalysisScope scope) {
+
+        CompletionService<List<DeveloperSuggestion>> completions = new ExecutorCompletionService<>(executor);
+        Map<Future<List<DeveloperSuggestion>>, List<Map<String, Object>>> inFlight = new HashMap<>();
+        Iterator<List<Map<String, Object>>> pending = units.iterator();
+        List<Map<String, Object>> nextUnit = null;
+        Result result = new Result();
+
+        try {
+            while (true) {
+                // Hand back everything that already finished
+                Future<List<DeveloperSuggestion>> done;
+                while ((done = completions.poll()) != null) {
+                    collect(done, inFlight, result, sink);
+                }
+
+                // Shut down by a child (budget) or from outside: nothing in flight is worth waiting for
+                if (scope.isShutdown()) {
+                    if (result.stopReason == null || "timeout".equals(result.stopReason)) {
+                        result.stopReason = scope.getShutdownReason();
+                    }
+                    if ("token_budget".equals(scope.getShutdownReason())) {
+                        result.budgetExhausted = true;
+                    }
+                    cancelAll(inFlight, result);
+                    break;
+                }
+
+                if (nextUnit == null && result.stopReason == null) {
+                    while (pending.hasNext()) {
+                        List<Map<String, Object>> candidate = pending.next();
+                        if (admission.test(candidate)) {
+                            nextUnit = candidate;
+                            break;
+                        }
+                        result.skipped += candidate.size();
+                        result.unprocessed.addAll(candidate);
+                        result.budgetExhausted = true;
+                    }
+                }
+
+                boolean canDispatch = result.stopReason == null && nextUnit != null
+                        && inFlight.size() < maxInFlight;
+
+                if (canDispatch) {
+                    if (remainingMillis.getAsLong() < dispatchCutoffMs) {
+                        result.stopReason = "timeout";
+                        continue;
+                    }
+                    if (result.tokensUsed > tokenLimit) {
+                        result.stopReason = "token_budget";
+                        result.budgetExhausted = true;
+                        scope.shutdown(result.stopReason);
+                        continue;
+                    }
+                    long expected = expectedLatency.applyAsLong(nextUnit);
+                    if (expected > remainingMillis.getAsLong() - drainCutoffMs) {
+                        log.info("Skipping issues {}: expected {}ms exceeds the time left", issueIds(nextUnit),
+                                expected);
+                        result.skipped += nextUnit.size();
+                        result.deadlineSkipped += nextUnit.size();
+                        result.unprocessed.addAll(nextUnit);
+                        nextUnit = null;
+                        continue;
+                    }
+                    List<Map<String, Object>> unit = nextUnit;
+                    nextUnit = null;
+                    inFlight.put(completions.submit(scope.child(() -> worker.apply(unit))), unit);
+                    result.submitted += unit.size();
+                    continue;
+                }
+
+                if (inFlight.isEmpty()) {
+                    break;
+                }
+
+                long drainWindow = remainingMillis.getAsLong() - drainCutoffMs;
+                Future<List<DeveloperSuggestion>> next = drainWindow > 0
+                        ? completions.poll(drainWindow, TimeUnit.MILLISECONDS)
+                        : null;
+                if (next == null) {
+                    result.stopReason = "timeout";
+                    scope.shutdown(result.stopReason);
+                    cancelAll(inFlight, result);
+                    break;
+                }
+                collect(next, inFlight, result, sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.stopReason = "interrupted";
+            scope.shutdown(result.stopReason);
+            cancelAll(inFlight, result);
+        }
+
+        if (nextUnit != null) {
+            result.notStarted += nextUnit.size();
+            result.unprocessed.addAll(nextUnit);
+        }
+        while (pending.hasNext()) {
+            List<Map<String, Object>> unit = pending.next();
+            result.notStarted += unit.size();
+            result.unprocessed.addAll(unit);
+        }
+
+        // Completion order depends on timing; report what was collected in dispatch order
+        Map<String, Integer> dispatchOrder = new HashMap<>();
+        for (List<Map<String, Object>> unit : units) {
+            for (Map<String, Object> issue : unit) {
+                dispatchOrder.putIfAbsent(String.valueOf(issue.get("id")), dispatchOrder.size());
+            }
+        }
+        result.suggestions.sort(Comparator.comparingInt(
+                suggestion -> dispatchOrder.getOrDefault(suggestion.getIssueId(), Integer.MAX_VALUE)));
+
+        log.info("Pipeline finished: submitted={}, completed={}, skipped={} ({} for deadline), cancelled={}, "
+                + "notStarted={}, stopReason={}", result.submitted, result.completed, result.skipped,
+                result.deadlineSkipped, result.cancelled, result.notStarted, result.stopReason);
+        return result;
+    }
+
+    private void collect(Future<List<DeveloperSuggestion>> future,
+                         Map<Future<List<DeveloperSuggestion>>, List<Map<String, Object>>> inFlight,
+                         Result result, Consumer<DeveloperSuggestion> sink) throws InterruptedException {
+        List<Map<String, Object>> unit = inFlight.remove(future);
+        try {
+            accept(future.get(), result, sink);
+            result.completed += unit.size();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NotProcessedException || cause instanceof CancellationException) {
+                // Out of time or budget: keep what was produced, leave the rest for a later invocation
+                List<DeveloperSuggestion> partial = cause instanceof NotProcessedException
+                        ? ((NotProcessedException) cause).getPartial() : List.of();
+                if (cause instanceof NotProcessedException && ((NotProcessedException) cause).isBudgetExhausted()) {
+                    result.budgetExhausted = true;
+                }
+                accept(partial, result, sink);
+                Set<String> done = new HashSet<>();
+                for (DeveloperSuggestion suggestion : partial) {
+                    if (suggestion != null) {
+                        done.add(suggestion.getIssueId());
+                    }
+                }
+                for (Map<String, Object> issue : unit) {
+                    if (done.contains(String.valueOf(issue.get("id")))) {
+                        result.completed++;
+                    } else {
+                        result.unprocessed.add(issue);
+                    }
+                }
+                log.info("Issues {} not processed: {}", issueIds(unit), cause.getMessage());
+                return;
+            }
+            result.completed += unit.size();
+            log.error("Suggestion worker failed for issues {}: {}", issueIds(unit), cause != null
+                    ? cause.getMessage() : e.getMessage());
+        }
+    }
+
+    private static void accept(List<DeveloperSuggestion> suggestions, Result result,
+                               Consumer<DeveloperSuggestion> sink) {
+        if (suggestions == null) {
+            return;
+        }
+        for (DeveloperSuggestion suggestion : suggestions) {
+            if (suggestion == null) {
+                continue;
+            }
+            result.suggestions.add(suggestion);
+            result.tokensUsed += suggestion.getTokensUsed() != null ? suggestion.getTokensUsed() : 0;
+            result.cost += suggestion.getCost() != null ? suggestion.getCost() : 0.0;
+            sink.accept(suggestion);
+        }
+    }
+
+    private void cancelAll(Map<Future<List<DeveloperSuggestion>>, List<Map<String, Object>>> inFlight,
+                           Result result) {
+        for (Map.Entry<Future<List<DeveloperSuggestion>>, List<Map<String, Object>>> entry : inFlight.entrySet()) {
+            // Whatever was not collected has to be redone, even if it finished just now
+            result.unprocessed.addAll(entry.getValue());
+            if (entry.getKey().cancel(true)) {
+                result.cancelled += entry.getValue().size();
+                log.warn("Cancelled in-flight suggestion for issues {}", issueIds(entry.getValue()));
+            }
+        }
+        inFlight.clear();
+    }
+
+    private static List<Object> issueIds(List<Map<String, Object>> unit) {
+        List<Object> ids = new ArrayList<>(unit.size());
+        for (Map<String, Object> issue : unit) {
+            ids.add(issue.get("id"));
+        }
+        return ids;
+    }
+
+    /**
+     * Thrown by a worker that could not process its unit for lack of time or budget, or
+     * because its scope was shut down. The unit's issues without a suggestion in partial
+     * are reported unprocessed, so that a later invocation retries them instead of the
+     * checkpoint recording them as done. A worker out of budget says so, since more
+     * invocations cannot help there.
+     */
+    public static class NotProcessedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<DeveloperSuggestion> partial;
+        private final boolean budgetExhausted;
+
+        public NotProcessedException(String message, List<DeveloperSuggestion> partial) {
+            this(message, partial, false);
+        }
+
+        public NotProcessedException(String message, List<DeveloperSuggestion> partial, boolean budgetExhausted) {
+            super(message);
+            this.partial = partial != null ? partial : List.of();
+            this.budgetExhausted = budgetExhausted;
+        }
+
+        public boolean isBudgetExhausted() {
+            return budgetExhausted;
+        }
+
+        /**
+         * Suggestions the worker did produce before giving up (packed cache hits, say)
+         */
+        public List<DeveloperSuggestion> getPartial() {
+            return partial;
+        }
+    }
+
+    /**
+     * Aggregated outcome of a pipeline run
+     */
+    public static class Result {
+        public final List<DeveloperSuggestion> suggestions = new ArrayList<>();
+        // Issues that were neither completed nor deliberately skipped: not started, cancelled, out of time
+        public final List<Map<String, Object>> unprocessed = new ArrayList<>();
+        public int tokensUsed;
+        public double cost;
+        public int submitted;
+        public int completed;
+        public int skipped;
+        public int deadlineSkipped;
+        public int cancelled;
+        public int notStarted;
+        public String stopReason;
+        // The token budget ran out: the unprocessed issues cannot be completed by another invocation
+        public boolean budgetExhausted;
+    }
+}
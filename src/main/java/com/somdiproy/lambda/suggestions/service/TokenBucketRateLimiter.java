@@ -0,0 +1,251 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/TokenBucketRateLimiter.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per model ID.
+ *
+ * Each bucket is a single AtomicLong holding the theoretical arrival time (GCRA form of
+ * a token bucket): a permit is granted when that time is no more than (burst - 1)
+ * intervals ahead of now, and granting it advances the time by one interval via CAS.
+ * No thread ever holds a lock or sleeps inside the limiter. A reserved permit that is
+ * cancelled before it comes due moves the time back by one interval, so callers that
+ * give up waiting do not push back the permits of later calls.
+ *
+ * Limits are configured per model with RATE_LIMITS, e.g.
+ * "amazon.nova-lite-v1:0=2.0:5,amazon.nova-pro-v1:0=0.5:2" (permits per second : burst).
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    // Defaults by model family; Lite has much higher Bedrock quotas than Pro/Premier
+    private static final Limit LITE_LIMIT = new Limit(2.0, 5);
+    private static final Limit PRO_LIMIT = new Limit(0.5, 2);
+    private static final Limit PREMIER_LIMIT = new Limit(0.2, 1);
+    private static final Limit DEFAULT_LIMIT = PREMIER_LIMIT;
+
+    private final Map<String, Limit> configuredLimits;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public TokenBucketRateLimiter(Map<String, Limit> configuredLimits, ScheduledExecutorService scheduler) {
+        this.configuredLimits = configuredLimits;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Build a limiter from the RATE_LIMITS environment variable
+     */
+    public static TokenBucketRateLimiter fromEnvironment(ScheduledExecutorService scheduler) {
+        return new TokenBucketRateLimiter(parseLimits(System.getenv("RATE_LIMITS")), scheduler);
+    }
+
+    @Override
+    public boolean tryAcquire(String key) {
+        return bucket(key).tryAcquire(System.nanoTime());
+    }
+
+    @Override
+    public CompletableFuture<Void> acquire(String key) {
+        return acquire(key, Long.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Void> acquire(String key, long maxWaitMillis) {
+        Bucket bucket = bucket(key);
+        long maxWaitNanos = maxWaitMillis >= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE) ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMillis));
+        long waitNanos = bucket.reserve(System.nanoTime(), maxWaitNanos);
+        if (waitNanos == Long.MAX_VALUE) {
+            return CompletableFuture.failedFuture(new TimeoutException("No permit for " + key + " within "
+                    + maxWaitMillis + "ms"));
+        }
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        log.debug("Rate limiting {}: permit available in {}ms", key, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        Permit permit = new Permit(bucket);
+        permit.timer = scheduler.schedule(() -> permit.complete(null), waitNanos, TimeUnit.NANOSECONDS);
+        return permit;
+    }
+
+    @Override
+    public long millisUntilAvailable(String key) {
+        long waitNanos = bucket(key).nanosUntilAvailable(System.nanoTime());
+        return waitNanos <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    /**
+     * Little's law: the permits issued while one call runs, plus the burst
+     */
+    @Override
+    public int sustainableConcurrency(String key, long callMillis) {
+        Limit limit = limitFor(key);
+        return limit.getBurst() + (int) Math.ceil(limit.getPermitsPerSecond() * callMillis / 1000.0);
+    }
+
+    /**
+     * Configured limit for a model, falling back to the defaults for its family
+     */
+    public Limit limitFor(String key) {
+        Limit configured = configuredLimits.get(key);
+        if (configured != null) {
+            return configured;
+        }
+        String lower = key.toLowerCase();
+        if (lower.contains("nova-lite") || lower.contains("nova-micro")) {
+            return LITE_LIMIT;
+        } else if (lower.contains("nova-pro")) {
+            return PRO_LIMIT;
+        }
+        return DEFAULT_LIMIT;
+    }
+
+    private Bucket bucket(String key) {
+        return buckets.computeIfAbsent(key, k -> new Bucket(limitFor(k)));
+    }
+
+    static Map<String, Limit> parseLimits(String spec) {
+        Map<String, Limit> limits = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return limits;
+        }
+        for (String entry : spec.split(",")) {
+            // Model IDs contain ':' themselves, so split on the last '=' and the last ':'
+            int eq = entry.lastIndexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (eq <= 0 || colon <= eq) {
+                log.warn("Ignoring malformed RATE_LIMITS entry: {}", entry);
+                continue;
+            }
+            try {
+                double rate = Double.parseDouble(entry.substring(eq + 1, colon).trim());
+                int burst = Integer.parseInt(entry.substring(colon + 1).trim());
+                limits.put(entry.substring(0, eq).trim(), new Limit(rate, burst));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed RATE_LIMITS entry: {}", entry);
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Refill rate and burst size for one model
+     */
+    public static class Limit {
+        private final double permitsPerSecond;
+        private final int burst;
+
+        public Limit(double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive");
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = Math.max(1, burst);
+        }
+
+        public double getPermitsPerSecond() { return permitsPerSecond; }
+        public int getBurst() { return burst; }
+    }
+
+    /**
+     * A permit that is not due yet; cancelling it hands it back to the bucket
+     */
+    private static final class Permit extends CompletableFuture<Void> {
+        private final Bucket bucket;
+        private volatile ScheduledFuture<?> timer;
+
+        Permit(Bucket bucket) {
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // Only the call that actually cancels it hands the permit back, and only before it came due
+            if (!completeExceptionally(new CancellationException())) {
+                return isCancelled();
+            }
+            ScheduledFuture<?> scheduled = timer;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            bucket.release(System.nanoTime());
+            return true;
+        }
+    }
+
+    /**
+     * Single-word bucket state, updated with CAS only
+     */
+    private static final class Bucket {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong theoreticalArrival;
+
+        Bucket(Limit limit) {
+            this.intervalNanos = (long) (1_000_000_000L / limit.getPermitsPerSecond());
+            this.toleranceNanos = intervalNanos * (limit.getBurst() - 1);
+            this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long start = Math.max(tat, now);
+                if (start - now > toleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(tat, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Claim the next permit and return how long the caller must wait for it, or
+         * Long.MAX_VALUE without claiming anything if that would be longer than maxWaitNanos
+         */
+        long reserve(long now, long maxWaitNanos) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long start = Math.max(tat, now);
+                long wait = start - now - toleranceNanos;
+                if (wait > maxWaitNanos) {
+                    return Long.MAX_VALUE;
+                }
+                if (theoreticalArrival.compareAndSet(tat, start + intervalNanos)) {
+                    return wait;
+                }
+            }
+        }
+
+        /**
+         * Hand back a reserved permit that did not come due: move the time back one interval
+         */
+        void release(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long released = Math.max(tat - intervalNanos, now);
+                if (released >= tat || theoreticalArrival.compareAndSet(tat, released)) {
+                    return;
+                }
+            }
+        }
+
+        long nanosUntilAvailable(long now) {
+            return Math.max(theoreticalArrival.get(), now) - now - toleranceNanos;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+// src/main/java/com/somdiproy/lambda/suggestions/service/TokenBudgetLedger.java
+package com.somdiproy.lambda.suggestions.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token budget of one run, reserved before each model call instead of checked after it.
+ *
+ * Every category gets a guaranteed share of the budget (50/30/20 for security,
+ * performance and quality by default), capped at what its issues can use at most;
+ * whatever no category is guaranteed forms a common pool. A call reserves its prompt
+ * plus max output tokens from its category's share and takes the rest from the pool,
+ * each with a CAS on that counter, so concurrent calls can never commit more than the
+ * budget. After the call the reservation is reconciled with the actual usage and the
+ * difference goes to the pool, where any category can use it.
+ */
+public class TokenBudgetLedger {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TokenBudgetLedger.class);
+
+    public static final String GENERAL = "general";
+
+    private static final Map<String, Double> DEFAULT_SHARES = Map.of(
+            "security", 0.50,
+            "performance", 0.30,
+            "quality", 0.20);
+    private static final double OTHER_SHARE = 0.20;
+    private static final Map<String, Double> SHARES = parseShares(System.getenv("CATEGORY_BUDGET_SHARES"));
+
+    private final long limit;
+    private final Map<String, AtomicLong> shares = new LinkedHashMap<>();
+    private final AtomicLong pool;
+    private final Map<String, AtomicLong> spent = new ConcurrentHashMap<>();
+    private final AtomicLong overdraft = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param limit  tokens the run may use in total
+     * @param demand worst-case tokens per category of the issues in the run
+     */
+    public TokenBudgetLedger(long limit, Map<String, Long> demand) {
+        this.limit = limit;
+
+        Map<String, Long> guaranteed = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : demand.entrySet()) {
+            String category = normalize(entry.getKey());
+            long share = Math.min((long) (limit * SHARES.getOrDefault(category, OTHER_SHARE)), entry.getValue());
+            guaranteed.merge(category, share, Long::sum);
+            total += share;
+        }
+        // Unknown categories can push the shares past the budget; scale them back down
+        double scale = total > limit ? (double) limit / total : 1.0;
+        long assigned = 0;
+        for (Map.Entry<String, Long> entry : guaranteed.entrySet()) {
+            long share = (long) (entry.getValue() * scale);
+            shares.put(entry.getKey(), new AtomicLong(share));
+            assigned += share;
+        }
+        this.pool = new AtomicLong(limit - assigned);
+    }
+
+    /**
+     * Reserve tokens for one model call of the category, or null if neither its share
+     * nor the pool can cover them
+     */
+    public Reservation reserve(String category, long tokens) {
+        String key = normalize(category);
+        AtomicLong share = shares.get(key);
+
+        long fromShare = share != null ? take(share, tokens, true) : 0L;
+        long fromPool = tokens - fromShare;
+        if (fromPool > 0 && take(pool, fromPool, false) == 0L) {
+            if (fromShare > 0) {
+                share.addAndGet(fromShare);
+            }
+            rejected.incrementAndGet();
+            log.debug("Token reservation of {} for {} rejected (pool {})", tokens, key, pool.get());
+            return null;
+        }
+        return new Reservation(key, fromShare, fromPool);
+    }
+
+    /**
+     * Take up to tokens from the counter (partial) or exactly tokens (all-or-nothing).
+     * Returns what was taken.
+     */
+    private static long take(AtomicLong counter, long tokens, boolean partial) {
+        while (true) {
+            long available = counter.get();
+            long taken = partial ? Math.min(available, tokens) : (available >= tokens ? tokens : 0L);
+            if (taken <= 0) {
+                return 0L;
+            }
+            if (counter.compareAndSet(available, available - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getSpent() {
+        return spent.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("limit", limit);
+        stats.put("spent", getSpent());
+        stats.put("pool", pool.get());
+        Map<String, Long> remainingShares = new LinkedHashMap<>();
+        shares.forEach((category, share) -> remainingShares.put(category, share.get()));
+        stats.put("shares", remainingShares);
+        Map<String, Long> spentByCategory = new LinkedHashMap<>();
+        spent.forEach((category, tokens) -> spentByCategory.put(category, tokens.get()));
+        stats.put("spentByCategory", spentByCategory);
+        stats.put("overdraft", overdraft.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private static String normalize(String category) {
+        return category != null ? category.toLowerCase(Locale.ROOT) : GENERAL;
+    }
+
+    /**
+     * Parse "category=share,..." overriding the default 50/30/20 split
+     */
+    private static Map<String, Double> parseShares(String spec) {
+        Map<String, Double> parsed = new HashMap<>(DEFAULT_SHARES);
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            try {
+                parsed.put(normalize(entry.substring(0, eq).trim()), Double.parseDouble(entry.substring(eq + 1).trim()));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed CATEGORY_BUDGET_SHARES entry: {}", entry);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Tokens held for one model call until it is reconciled or cancelled
+     */
+    public final class Reservation {
+        private final String category;
+        private final long fromShare;
+        private final long fromPool;
+        private boolean settled;
+
+        private Reservation(String category, long fromShare, long fromPool) {
+            this.category = category;
+            this.fromShare = fromShare;
+            this.fromPool = fromPool;
+        }
+
+        public long getTokens() {
+            return fromShare + fromPool;
+        }
+
+        /**
+         * Book the tokens the call actually used. Unused tokens go to the pool; usage
+         * beyond the reservation is taken from the pool too, and counted as overdraft
+         * when the pool cannot cover it (the tokens are spent either way).
+         */
+        public synchronized void reconcile(long actualTokens) {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            spent.computeIfAbsent(category, k -> new AtomicLong()).addAndGet(actualTokens);
+
+            long difference = getTokens() - actualTokens;
+            if (difference > 0) {
+                pool.addAndGet(difference);
+            } else if (difference < 0) {
+                long extra = -difference;
+                long covered = take(pool, extra, true);
+                if (covered < extra) {
+                    overdraft.addAndGet(extra - covered);
+                    log.warn("{} call used {} tokens more than reserved and available", category, extra - covered);
+                }
+            }
+        }
+
+        /**
+         * Give the whole reservation back (the call was not made or not charged)
+         */
+        public synchronized void cancel() {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            if (fromShare > 0) {
+                shares.get(category).addAndGet(fromShare);
+            }
+            if (fromPool > 0) {
+                pool.addAndGet(fromPool);
+            }
+        }
+    }
+
+    /**
+     * Thrown instead of making a call whose tokens could not be reserved
+     */
+    public static class BudgetExhaustedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExhaustedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/FixTemplate.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+/**
+ * One fix template, serialized and bound once when its catalog is loaded.
+ * The suggestion body is kept as compact JSON text so callers can hand it on
+ * without re-rendering it per issue, and as a bound suggestion prototype so
+ * callers can skip parsing altogether.
+ */
+public class FixTemplate {
+
+    private final String category;
+    private final String issueType;
+    private final String language;
+    private final String json;
+    private final DeveloperSuggestion prototype;
+
+    FixTemplate(String category, String issueType, String language, String json,
+                DeveloperSuggestion prototype) {
+        this.category = category;
+        this.issueType = issueType;
+        this.language = language;
+        this.json = json;
+        this.prototype = prototype;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getIssueType() {
+        return issueType;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * The pre-serialized suggestion JSON as text
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Fix content bound from the template, without issue metadata. Shared by every
+     * issue the template serves: copy it with toBuilder() and never mutate it.
+     */
+    public DeveloperSuggestion getPrototype() {
+        return prototype;
+    }
+
+    public boolean isDefault() {
+        return FixTemplateSet.DEFAULT_TYPE.equals(issueType);
+    }
+
+    @Override
+    public String toString() {
+        return category + "/" + issueType + "/" + language;
+    }
+}
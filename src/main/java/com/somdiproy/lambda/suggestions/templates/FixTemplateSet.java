@@ -0,0 +1,202 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/FixTemplateSet.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fix templates of one category, loaded once from a classpath JSON catalog.
+ *
+ * Templates are indexed by (issueType, language), with "*" as the any-language entry
+ * and a DEFAULT issue type as the category fallback. Issues whose type is not in the
+ * index are matched by keyword against their type and description.
+ */
+public class FixTemplateSet {
+
+    static final String DEFAULT_TYPE = "DEFAULT";
+    static final String ANY_LANGUAGE = "*";
+
+    // A hit in the issue type says more than one in the free-text description
+    private static final int TYPE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader SUGGESTION_READER = MAPPER.readerFor(DeveloperSuggestion.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final String category;
+    private final Map<String, FixTemplate> index;
+    private final List<String> issueTypes;
+    private final KeywordAutomaton automaton;
+
+    protected FixTemplateSet(String resourcePath) {
+        JsonNode catalog = readCatalog(resourcePath);
+        this.category = catalog.path("category").asText();
+
+        Map<String, FixTemplate> templates = new HashMap<>();
+        List<String> types = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordTypes = new ArrayList<>();
+
+        for (JsonNode entry : catalog.path("templates")) {
+            String issueType = normalizeType(entry.path("issueType").asText());
+            String language = entry.path("language").asText(ANY_LANGUAGE).toLowerCase(Locale.ROOT);
+            try {
+                JsonNode suggestion = entry.path("suggestion");
+                String json = MAPPER.writeValueAsString(suggestion);
+                DeveloperSuggestion prototype = SUGGESTION_READER.readValue(suggestion);
+                templates.put(key(issueType, language),
+                        new FixTemplate(category, issueType, language, json, prototype));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot load template " + issueType + " in " + resourcePath, e);
+            }
+
+            int typeIndex = types.indexOf(issueType);
+            if (typeIndex < 0) {
+                typeIndex = types.size();
+                types.add(issueType);
+            }
+            for (JsonNode keyword : entry.path("keywords")) {
+                keywords.add(keyword.asText());
+                keywordTypes.add(typeIndex);
+            }
+        }
+
+        if (!templates.containsKey(key(DEFAULT_TYPE, ANY_LANGUAGE))) {
+            throw new IllegalStateException("Template catalog " + resourcePath + " has no DEFAULT template");
+        }
+
+        this.index = Collections.unmodifiableMap(templates);
+        this.issueTypes = Collections.unmodifiableList(types);
+        this.automaton = new KeywordAutomaton(keywords, keywordTypes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Exact lookup, falling back to the any-language template of the type; null if unknown
+     */
+    public FixTemplate lookup(String issueType, String language) {
+        String type = normalizeType(issueType);
+        String lang = language != null ? language.toLowerCase(Locale.ROOT) : ANY_LANGUAGE;
+        FixTemplate template = index.get(key(type, lang));
+        return template != null ? template : index.get(key(type, ANY_LANGUAGE));
+    }
+
+    /**
+     * Best template for the issue, or the category DEFAULT
+     */
+    public FixTemplate resolve(Map<String, Object> issue) {
+        Match match = find(issue);
+        return match != null ? match.template : defaultTemplate(language(issue));
+    }
+
+    public FixTemplate defaultTemplate(String language) {
+        return lookup(DEFAULT_TYPE, language);
+    }
+
+    /**
+     * Exact type hit first, then the keyword with the highest score; null if nothing matched
+     */
+    Match find(Map<String, Object> issue) {
+        String language = language(issue);
+        Object type = issue.get("type");
+        if (type != null) {
+            FixTemplate exact = lookup(type.toString(), language);
+            if (exact != null && !exact.isDefault()) {
+                return new Match(exact, Integer.MAX_VALUE);
+            }
+        }
+
+        int[] scores = new int[issueTypes.size()];
+        automaton.accumulate(type != null ? type.toString() : null, TYPE_WEIGHT, scores);
+        automaton.accumulate((String) issue.get("description"), DESCRIPTION_WEIGHT, scores);
+        return best(scores, language);
+    }
+
+    /**
+     * Keyword match over free text, for callers that only have the prompt header
+     */
+    Match find(CharSequence text, String language) {
+        int[] scores = new int[issueTypes.size()];
+        automaton.accumulate(text, TYPE_WEIGHT, scores);
+        return best(scores, language);
+    }
+
+    private Match best(int[] scores, String language) {
+        int bestType = -1;
+        for (int t = 0; t < scores.length; t++) {
+            // Ties go to the type listed first in the catalog
+            if (scores[t] > 0 && (bestType < 0 || scores[t] > scores[bestType])) {
+                bestType = t;
+            }
+        }
+        if (bestType < 0) {
+            return null;
+        }
+        FixTemplate template = lookup(issueTypes.get(bestType), language);
+        return template != null ? new Match(template, scores[bestType]) : null;
+    }
+
+    private static String language(Map<String, Object> issue) {
+        Object language = issue.get("language");
+        return language != null ? language.toString() : null;
+    }
+
+    private static String key(String issueType, String language) {
+        return issueType + "|" + language;
+    }
+
+    /**
+     * "sql-injection" and "Sql Injection" index as SQL_INJECTION
+     */
+    static String normalizeType(String issueType) {
+        if (issueType == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(issueType.length());
+        for (int i = 0; i < issueType.length(); i++) {
+            char c = issueType.charAt(i);
+            normalized.append(Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_');
+        }
+        return normalized.toString();
+    }
+
+    private static JsonNode readCatalog(String resourcePath) {
+        try (InputStream in = FixTemplateSet.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new IllegalStateException("Template catalog not found on classpath: " + resourcePath);
+            }
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read template catalog " + resourcePath, e);
+        }
+    }
+
+    /**
+     * A matched template with its score (MAX_VALUE for an exact type hit)
+     */
+    static final class Match {
+        final FixTemplate template;
+        final int score;
+
+        Match(FixTemplate template, int score) {
+            this.template = template;
+            this.score = score;
+        }
+    }
+}
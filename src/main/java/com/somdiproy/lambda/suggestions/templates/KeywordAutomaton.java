@@ -0,0 +1,158 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/KeywordAutomaton.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a fixed keyword set.
+ *
+ * Text and keywords are normalized the same way: letters and digits are lowercased and
+ * every other run of characters becomes a single space, so "SQL_INJECTION", "sql-injection"
+ * and "SQL injection" all read as "sql injection". Keywords only match at the start of a
+ * word ("loop" matches "loops" but "n 1" does not match "version 1").
+ *
+ * The goto/failure function is compiled into a dense transition table at construction,
+ * so scanning is one array lookup per character regardless of the number of keywords.
+ * Immutable and safe to share between threads.
+ */
+public class KeywordAutomaton {
+
+    // a-z, 0-9 and the word separator
+    private static final int ALPHABET = 37;
+    private static final int SEPARATOR = 36;
+
+    private final int[][] transitions;
+    private final int[][] outputs;
+    private final int[] values;
+
+    /**
+     * @param keywords keywords to match
+     * @param values   value reported for each keyword (same index)
+     */
+    public KeywordAutomaton(List<String> keywords, int[] values) {
+        this.values = values.clone();
+
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        gotos.add(newNode());
+        out.add(new ArrayList<>());
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String normalized = normalize(keywords.get(k));
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            // Anchor at a word start
+            int state = step(gotos, out, 0, SEPARATOR);
+            for (int i = 0; i < normalized.length(); i++) {
+                state = step(gotos, out, state, symbol(normalized.charAt(i)));
+            }
+            out.get(state).add(k);
+        }
+
+        // Breadth-first failure links, folded into the transition table
+        int[] fail = new int[gotos.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int[] root = gotos.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            if (root[c] > 0) {
+                queue.add(root[c]);
+            } else {
+                root[c] = 0;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] node = gotos.get(state);
+            out.get(state).addAll(out.get(fail[state]));
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = node[c];
+                if (next > 0) {
+                    fail[next] = gotos.get(fail[state])[c];
+                    queue.add(next);
+                } else {
+                    node[c] = gotos.get(fail[state])[c];
+                }
+            }
+        }
+
+        this.transitions = gotos.toArray(new int[0][]);
+        this.outputs = new int[out.size()][];
+        for (int s = 0; s < out.size(); s++) {
+            this.outputs[s] = out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Scan the text and add weight to scores[value] for every keyword occurrence
+     */
+    public void accumulate(CharSequence text, int weight, int[] scores) {
+        if (text == null) {
+            return;
+        }
+        int state = transitions[0][SEPARATOR];
+        boolean separated = true;
+        for (int i = 0; i < text.length(); i++) {
+            int c = symbol(Character.toLowerCase(text.charAt(i)));
+            if (c == SEPARATOR) {
+                if (separated) {
+                    continue;
+                }
+                separated = true;
+            } else {
+                separated = false;
+            }
+            state = transitions[state][c];
+            for (int keyword : outputs[state]) {
+                scores[values[keyword]] += weight;
+            }
+        }
+    }
+
+    private static int step(List<int[]> gotos, List<List<Integer>> out, int state, int c) {
+        int next = gotos.get(state)[c];
+        if (next < 0) {
+            next = gotos.size();
+            gotos.get(state)[c] = next;
+            gotos.add(newNode());
+            out.add(new ArrayList<>());
+        }
+        return next;
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return SEPARATOR;
+    }
+
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            int c = symbol(Character.toLowerCase(text.charAt(i)));
+            if (c != SEPARATOR) {
+                normalized.append(Character.toLowerCase(text.charAt(i)));
+            } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return normalized.substring(0, end);
+    }
+}
@@ -0,0 +1,14 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/PerformanceFixTemplates.java
+package com.somdiproy.lambda.suggestions.templates;
+
+/**
+ * Performance fix templates from templates/performance-fix-templates.json
+ */
+public final class PerformanceFixTemplates extends FixTemplateSet {
+
+    public static final PerformanceFixTemplates INSTANCE = new PerformanceFixTemplates();
+
+    private PerformanceFixTemplates() {
+        super("templates/performance-fix-templates.json");
+    }
+}
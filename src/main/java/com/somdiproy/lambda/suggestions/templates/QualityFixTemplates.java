@@ -0,0 +1,14 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/QualityFixTemplates.java
+package com.somdiproy.lambda.suggestions.templates;
+
+/**
+ * Code quality fix templates from templates/quality-fix-templates.json
+ */
+public final class QualityFixTemplates extends FixTemplateSet {
+
+    public static final QualityFixTemplates INSTANCE = new QualityFixTemplates();
+
+    private QualityFixTemplates() {
+        super("templates/quality-fix-templates.json");
+    }
+}
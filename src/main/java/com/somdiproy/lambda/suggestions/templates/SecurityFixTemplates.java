@@ -0,0 +1,14 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/SecurityFixTemplates.java
+package com.somdiproy.lambda.suggestions.templates;
+
+/**
+ * Security fix templates from templates/security-fix-templates.json
+ */
+public final class SecurityFixTemplates extends FixTemplateSet {
+
+    public static final SecurityFixTemplates INSTANCE = new SecurityFixTemplates();
+
+    private SecurityFixTemplates() {
+        super("templates/security-fix-templates.json");
+    }
+}
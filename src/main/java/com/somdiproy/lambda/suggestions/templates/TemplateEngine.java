@@ -0,0 +1,74 @@
+// src/main/java/com/somdiproy/lambda/suggestions/templates/TemplateEngine.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point for template suggestions.
+ *
+ * Picks the catalog by category and resolves the template from the issue fields.
+ * Without a category every catalog is searched and the best match wins, falling back
+ * to the general template. All catalogs are loaded once per container.
+ */
+public final class TemplateEngine {
+
+    private static final TemplateEngine INSTANCE = new TemplateEngine();
+
+    private final List<FixTemplateSet> categorySets = List.of(
+            SecurityFixTemplates.INSTANCE, PerformanceFixTemplates.INSTANCE, QualityFixTemplates.INSTANCE);
+    private final FixTemplateSet generalSet = new FixTemplateSet("templates/general-fix-templates.json");
+
+    private TemplateEngine() {
+    }
+
+    public static TemplateEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Template for the issue in the given category (null or unknown searches all catalogs)
+     */
+    public FixTemplate resolve(Map<String, Object> issue, String category) {
+        FixTemplateSet set = setFor(category);
+        if (set != null) {
+            return set.resolve(issue);
+        }
+
+        FixTemplateSet.Match best = null;
+        for (FixTemplateSet candidate : categorySets) {
+            FixTemplateSet.Match match = candidate.find(issue);
+            if (match != null && (best == null || match.score > best.score)) {
+                best = match;
+            }
+        }
+        Object language = issue.get("language");
+        return best != null ? best.template : generalSet.defaultTemplate(language != null ? language.toString() : null);
+    }
+
+    /**
+     * Template for a short description such as an issue type or prompt header line
+     */
+    public FixTemplate resolve(CharSequence text) {
+        FixTemplateSet.Match best = null;
+        for (FixTemplateSet candidate : categorySets) {
+            FixTemplateSet.Match match = candidate.find(text, null);
+            if (match != null && (best == null || match.score > best.score)) {
+                best = match;
+            }
+        }
+        return best != null ? best.template : generalSet.defaultTemplate(null);
+    }
+
+    private FixTemplateSet setFor(String category) {
+        if (category == null) {
+            return null;
+        }
+        for (FixTemplateSet set : categorySets) {
+            if (set.getCategory().equalsIgnoreCase(category)) {
+                return set;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,317 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/CodeContextExtractor.java
+package com.somdiproy.lambda.suggestions.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Picks the code around an issue's line that fits a token target.
+ *
+ * Comments and blank lines are dropped first (the issue line itself is kept verbatim).
+ * The issue line always goes in; the headers of the blocks enclosing it and their
+ * closing braces come next, innermost first. Other lines are ranked by distance from
+ * the issue line, with lines nested in other bodies or outside the innermost enclosing
+ * block ranked last, and kept in that order while they fit. Every run of dropped lines becomes a "..." line
+ * at its indentation, so the model still sees the shape of the code.
+ *
+ * Blocks are delimited by braces when the snippet has any, by indentation otherwise.
+ */
+public final class CodeContextExtractor {
+
+    private static final Set<String> HASH_COMMENT_LANGUAGES = Set.of(
+            "python", "ruby", "shell", "bash", "sh", "perl", "r", "yaml", "powershell");
+
+    private static final int DEPTH_PENALTY = 8;
+    private static final int OUTSIDE_PENALTY = 20;
+    private static final int CHARS_PER_TOKEN_CAP = 4;
+
+    private CodeContextExtractor() {
+    }
+
+    /**
+     * @param code      the issue's snippet
+     * @param line      1-based line of the issue within the snippet, or null if unknown
+     * @param language  issue language, for the comment syntax
+     * @param maxTokens token target for the returned code
+     */
+    public static String extract(String code, Integer line, String language, int maxTokens) {
+        if (code == null || code.isEmpty()) {
+            return code;
+        }
+        String[] raw = code.split("\r?\n", -1);
+        int target = line != null && line >= 1 && line <= raw.length ? line - 1 : -1;
+
+        // Strip comments and blank lines, remembering where the issue line went
+        boolean hashComments = language != null
+                && HASH_COMMENT_LANGUAGES.contains(language.toLowerCase(Locale.ROOT));
+        List<String> lines = new ArrayList<>(raw.length);
+        int focus = -1;
+        boolean[] inBlockComment = new boolean[1];
+        for (int i = 0; i < raw.length; i++) {
+            String stripped = stripComments(raw[i], hashComments, inBlockComment);
+            if (i == target) {
+                focus = lines.size();
+                lines.add(raw[i]);
+            } else if (!stripped.isBlank()) {
+                lines.add(stripped);
+            }
+        }
+        if (lines.isEmpty()) {
+            return "";
+        }
+
+        int[] tokens = new int[lines.size()];
+        int total = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = TokenOptimizer.estimateTokens(lines.get(i)) + 1;
+            total += tokens[i];
+        }
+        if (total <= maxTokens) {
+            return String.join("\n", lines);
+        }
+
+        boolean braces = code.indexOf('{') >= 0;
+        int[] depth = braces ? braceDepths(lines) : indentDepths(lines);
+        if (focus < 0) {
+            // Without a line, keep the top of the snippet
+            focus = 0;
+        }
+
+        // Headers and closing lines of the blocks around the focus come before other lines
+        boolean[] required = new boolean[lines.size()];
+        required[focus] = true;
+        int blockStart = 0;
+        int blockEnd = lines.size() - 1;
+        int level = depth[focus];
+        for (int i = focus - 1; i >= 0 && level > 0; i--) {
+            if (depth[i] < level) {
+                if (level == depth[focus]) {
+                    blockStart = i;
+                }
+                required[i] = true;
+                // Allman style: the brace line's header is the line above it
+                if (lines.get(i).trim().equals("{") && i > 0) {
+                    required[i - 1] = true;
+                }
+                level = depth[i];
+            }
+        }
+        level = depth[focus];
+        for (int i = focus + 1; i < lines.size() && level > 0; i++) {
+            if (depth[i] < level) {
+                if (level == depth[focus]) {
+                    blockEnd = braces ? i : i - 1;
+                }
+                if (braces) {
+                    required[i] = true;
+                }
+                level = depth[i];
+            }
+        }
+
+        // Rank the rest: near the focus first, other bodies and other blocks last
+        Integer[] order = new Integer[lines.size()];
+        int[] score = new int[lines.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            score[i] = Math.abs(i - focus) + DEPTH_PENALTY * Math.max(0, depth[i] - depth[focus])
+                    + (i < blockStart || i > blockEnd ? OUTSIDE_PENALTY : 0);
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(score[a], score[b]));
+
+        // The issue line goes in even if it has to be cut; enclosing headers and closers
+        // follow innermost block first while they fit
+        boolean[] keep = new boolean[lines.size()];
+        if (tokens[focus] > maxTokens) {
+            lines.set(focus, cut(lines.get(focus), maxTokens));
+            tokens[focus] = maxTokens;
+        }
+        keep[focus] = true;
+        int used = tokens[focus];
+        Integer[] enclosing = new Integer[lines.size()];
+        for (int i = 0; i < enclosing.length; i++) {
+            enclosing[i] = i;
+        }
+        int anchor = focus;
+        Arrays.sort(enclosing, (a, b) -> depth[a] != depth[b]
+                ? Integer.compare(depth[b], depth[a])
+                : Integer.compare(Math.abs(a - anchor), Math.abs(b - anchor)));
+        for (int i : enclosing) {
+            if (required[i] && !keep[i] && used + tokens[i] <= maxTokens) {
+                keep[i] = true;
+                used += tokens[i];
+            }
+        }
+        for (int i : order) {
+            if (keep[i]) {
+                continue;
+            }
+            if (used + tokens[i] > maxTokens) {
+                break;
+            }
+            keep[i] = true;
+            used += tokens[i];
+        }
+
+        StringBuilder out = new StringBuilder(Math.min(code.length(), maxTokens * CHARS_PER_TOKEN_CAP));
+        boolean gap = false;
+        for (int i = 0; i < lines.size(); i++) {
+            if (!keep[i]) {
+                if (!gap) {
+                    out.append(indentation(lines.get(i))).append("...\n");
+                    gap = true;
+                }
+                continue;
+            }
+            gap = false;
+            out.append(lines.get(i)).append('\n');
+        }
+        out.setLength(out.length() - 1);
+        return out.toString();
+    }
+
+    /**
+     * Remove comments outside string literals. Block comment state carries across lines.
+     */
+    private static String stripComments(String line, boolean hashComments, boolean[] inBlockComment) {
+        StringBuilder out = null;
+        int copied = 0;
+        char quote = 0;
+        int n = line.length();
+        for (int i = 0; i < n; i++) {
+            char ch = line.charAt(i);
+            if (inBlockComment[0]) {
+                if (ch == '*' && i + 1 < n && line.charAt(i + 1) == '/') {
+                    out = append(out, line, 0, 0);
+                    inBlockComment[0] = false;
+                    copied = i + 2;
+                    i++;
+                }
+                continue;
+            }
+            if (quote != 0) {
+                if (ch == '\\') {
+                    i++;
+                } else if (ch == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (ch == '"' || ch == '\'' || ch == '`') {
+                quote = ch;
+            } else if (ch == '/' && i + 1 < n && line.charAt(i + 1) == '/' && !hashComments
+                    || ch == '#' && hashComments) {
+                out = append(out, line, copied, i);
+                return rtrim(out);
+            } else if (ch == '/' && i + 1 < n && line.charAt(i + 1) == '*' && !hashComments) {
+                out = append(out, line, copied, i);
+                inBlockComment[0] = true;
+                i++;
+            }
+        }
+        if (out == null) {
+            return inBlockComment[0] ? "" : line;
+        }
+        if (!inBlockComment[0]) {
+            append(out, line, copied, n);
+        }
+        return rtrim(out);
+    }
+
+    private static StringBuilder append(StringBuilder out, String line, int from, int to) {
+        if (out == null) {
+            out = new StringBuilder(line.length());
+        }
+        if (to > from) {
+            out.append(line, from, to);
+        }
+        return out;
+    }
+
+    private static String rtrim(StringBuilder out) {
+        int end = out.length();
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+        return out.substring(0, end);
+    }
+
+    /**
+     * Brace nesting at the start of each line; a line opening with '}' belongs to the
+     * level it closes back to
+     */
+    private static int[] braceDepths(List<String> lines) {
+        int[] depth = new int[lines.size()];
+        int level = 0;
+        for (int i = 0; i < depth.length; i++) {
+            String line = lines.get(i);
+            int leadingClose = 0;
+            int j = 0;
+            while (j < line.length() && Character.isWhitespace(line.charAt(j))) {
+                j++;
+            }
+            while (j < line.length() && line.charAt(j) == '}') {
+                leadingClose++;
+                j++;
+            }
+            depth[i] = Math.max(0, level - leadingClose);
+            char quote = 0;
+            for (int k = 0; k < line.length(); k++) {
+                char ch = line.charAt(k);
+                if (quote != 0) {
+                    if (ch == '\\') {
+                        k++;
+                    } else if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '"' || ch == '\'' || ch == '`') {
+                    quote = ch;
+                } else if (ch == '{') {
+                    level++;
+                } else if (ch == '}') {
+                    level = Math.max(0, level - 1);
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Indentation width of each line, tabs counting as four columns
+     */
+    private static int[] indentDepths(List<String> lines) {
+        int[] depth = new int[lines.size()];
+        for (int i = 0; i < depth.length; i++) {
+            String line = lines.get(i);
+            int width = 0;
+            for (int j = 0; j < line.length(); j++) {
+                char ch = line.charAt(j);
+                if (ch == ' ') {
+                    width++;
+                } else if (ch == '\t') {
+                    width += 4;
+                } else {
+                    break;
+                }
+            }
+            depth[i] = width;
+        }
+        return depth;
+    }
+
+    private static String indentation(String line) {
+        int i = 0;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        return line.substring(0, i);
+    }
+
+    private static String cut(String line, int maxTokens) {
+        int maxChars = maxTokens * CHARS_PER_TOKEN_CAP;
+        return line.length() <= maxChars ? line : line.substring(0, maxChars) + " ...";
+    }
+}
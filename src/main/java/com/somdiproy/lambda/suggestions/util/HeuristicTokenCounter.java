@@ -0,0 +1,199 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/HeuristicTokenCounter.java
+package com.somdiproy.lambda.suggestions.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BPE-style token estimate from a single allocation-free scan.
+ *
+ * The text is split the way BPE vocabularies tend to split it: words (long ones and
+ * camelCase humps in pieces), digit groups of three, runs of punctuation two symbols at
+ * a time, indentation four spaces at a time, one token per CJK or other non-Latin
+ * character. Each line is classed as code or prose by its share of punctuation, and the
+ * two raw counts are scaled by per-model correction factors that are nudged towards
+ * the usage Bedrock reports for every call.
+ */
+public class HeuristicTokenCounter implements TokenCounter {
+
+    private static final int WORD_PIECE_CHARS = 8;
+    private static final int CODE_PUNCTUATION_PERCENT = 8;
+    private static final double LEARNING_RATE = 0.1;
+    private static final double MIN_FACTOR = 0.5;
+    private static final double MAX_FACTOR = 2.5;
+
+    private final Correction shared = new Correction(1.0, 1.0);
+    private final Map<String, Correction> corrections = new ConcurrentHashMap<>();
+
+    @Override
+    public int count(CharSequence text, String modelId) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        long raw = scan(text);
+        return correction(modelId).apply(codeTokens(raw), proseTokens(raw));
+    }
+
+    @Override
+    public void observe(CharSequence text, String modelId, int actualTokens) {
+        if (text == null || text.length() == 0 || actualTokens <= 0) {
+            return;
+        }
+        long raw = scan(text);
+        shared.update(codeTokens(raw), proseTokens(raw), actualTokens);
+        if (modelId != null) {
+            correction(modelId).update(codeTokens(raw), proseTokens(raw), actualTokens);
+        }
+    }
+
+    /**
+     * Current correction factors per model, for diagnostics
+     */
+    public Map<String, double[]> getCorrections() {
+        Map<String, double[]> factors = new ConcurrentHashMap<>();
+        corrections.forEach((model, c) -> factors.put(model, new double[] { c.code, c.prose }));
+        return factors;
+    }
+
+    private Correction correction(String modelId) {
+        if (modelId == null) {
+            return shared;
+        }
+        // New models start from what was learned across all models
+        return corrections.computeIfAbsent(modelId, k -> new Correction(shared.code, shared.prose));
+    }
+
+    private static int codeTokens(long raw) {
+        return (int) (raw >>> 32);
+    }
+
+    private static int proseTokens(long raw) {
+        return (int) raw;
+    }
+
+    /**
+     * Raw code and prose token counts, packed into one long (code in the high half)
+     */
+    static long scan(CharSequence text) {
+        long code = 0;
+        long prose = 0;
+        int lineTokens = 0;
+        int lineChars = 0;
+        int linePunctuation = 0;
+
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char ch = text.charAt(i);
+            if (ch == '\n') {
+                // A run of line breaks is one token, billed with the line it ends
+                while (i < n && (text.charAt(i) == '\n' || text.charAt(i) == '\r')) {
+                    i++;
+                }
+                lineTokens++;
+                if (linePunctuation * 100 > lineChars * CODE_PUNCTUATION_PERCENT) {
+                    code += lineTokens;
+                } else {
+                    prose += lineTokens;
+                }
+                lineTokens = 0;
+                lineChars = 0;
+                linePunctuation = 0;
+            } else if (ch == ' ' || ch == '\t' || ch == '\r') {
+                // A single space merges into the next word; indentation runs do not
+                int start = i;
+                while (i < n && (text.charAt(i) == ' ' || text.charAt(i) == '\t' || text.charAt(i) == '\r')) {
+                    i++;
+                }
+                int run = i - start;
+                if (run > 1) {
+                    lineTokens += (run + 3) / 4;
+                }
+            } else if (ch < 0x2E80 && Character.isLetter(ch)) {
+                int start = i;
+                int pieceLength = 1;
+                lineTokens++;
+                i++;
+                while (i < n) {
+                    char c = text.charAt(i);
+                    if (c >= 0x2E80 || !Character.isLetter(c)) {
+                        break;
+                    }
+                    boolean hump = Character.isUpperCase(c) && Character.isLowerCase(text.charAt(i - 1));
+                    if (hump || pieceLength >= WORD_PIECE_CHARS) {
+                        lineTokens++;
+                        pieceLength = 0;
+                    }
+                    pieceLength++;
+                    i++;
+                }
+                lineChars += i - start;
+            } else if (ch >= '0' && ch <= '9') {
+                int start = i;
+                while (i < n && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                    i++;
+                }
+                lineTokens += (i - start + 2) / 3;
+                lineChars += i - start;
+            } else if (ch > 0x7F) {
+                // CJK, emoji halves and other scripts rarely share tokens
+                lineTokens++;
+                lineChars++;
+                i++;
+            } else {
+                int start = i++;
+                while (i < n && isPunctuation(text.charAt(i))) {
+                    i++;
+                }
+                int run = i - start;
+                lineTokens += (run + 1) / 2;
+                lineChars += run;
+                linePunctuation += run;
+            }
+        }
+        if (linePunctuation * 100 > lineChars * CODE_PUNCTUATION_PERCENT) {
+            code += lineTokens;
+        } else {
+            prose += lineTokens;
+        }
+        return (Math.min(code, Integer.MAX_VALUE) << 32) | Math.min(prose, Integer.MAX_VALUE);
+    }
+
+    private static boolean isPunctuation(char ch) {
+        return ch <= 0x7F && ch > ' ' && !Character.isLetterOrDigit(ch);
+    }
+
+    /**
+     * Scale factors for code and prose tokens. Each observation moves both towards the
+     * reported count in proportion to their share of the estimate.
+     */
+    private static final class Correction {
+        private volatile double code;
+        private volatile double prose;
+
+        Correction(double code, double prose) {
+            this.code = code;
+            this.prose = prose;
+        }
+
+        int apply(int codeTokens, int proseTokens) {
+            return (int) Math.ceil(codeTokens * code + proseTokens * prose);
+        }
+
+        synchronized void update(int codeTokens, int proseTokens, int actualTokens) {
+            double codeEstimate = codeTokens * code;
+            double proseEstimate = proseTokens * prose;
+            double estimate = codeEstimate + proseEstimate;
+            if (estimate <= 0) {
+                return;
+            }
+            double error = actualTokens / estimate - 1.0;
+            code = clamp(code * (1.0 + LEARNING_RATE * error * codeEstimate / estimate));
+            prose = clamp(prose * (1.0 + LEARNING_RATE * error * proseEstimate / estimate));
+        }
+
+        private static double clamp(double factor) {
+            return Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+        }
+    }
+}
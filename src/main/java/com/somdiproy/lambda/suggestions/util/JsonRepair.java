@@ -0,0 +1,268 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/JsonRepair.java
+package com.somdiproy.lambda.suggestions.util;
+
+/**
+ * Single-pass repair of the almost-JSON that models produce.
+ *
+ * One left-to-right scan with in-string/escape state, writing into a single output
+ * buffer (no regexes, no intermediate strings). It fixes the usual failure modes:
+ * raw newlines/tabs/control chars inside strings, invalid escapes such as "\d" from
+ * regex or Windows paths (or a unicode escape without four hex digits), unescaped
+ * quotes inside a value, trailing commas, and objects/arrays/strings left open by a
+ * truncated response. A key left without a value is dropped, a value cut after its
+ * ':' becomes null and a cut literal or number is completed. Text before the first
+ * '{' or '[' and after the root value closes is dropped.
+ */
+public class JsonRepair {
+
+    private static final int MAX_DEPTH = 256;
+    private static final String[] LITERALS = {"true", "false", "null"};
+
+    /**
+     * Repair the JSON value starting at the first '{' or '['.
+     * Returns null when the input contains no JSON value at all.
+     */
+    public static String repair(CharSequence input) {
+        if (input == null) {
+            return null;
+        }
+        int length = input.length();
+        int start = 0;
+        while (start < length && input.charAt(start) != '{' && input.charAt(start) != '[') {
+            start++;
+        }
+        if (start == length) {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder(length - start + 16);
+        char[] open = new char[MAX_DEPTH];
+        // Per open object: where the current key starts in out until its ':' (else -1),
+        // and whether the member's value is due
+        int[] keyStart = new int[MAX_DEPTH];
+        boolean[] valueDue = new boolean[MAX_DEPTH];
+        int depth = 0;
+        boolean inString = false;
+
+        for (int i = start; i < length; i++) {
+            char c = input.charAt(i);
+
+            if (inString) {
+                if (c == '\\') {
+                    char next = i + 1 < length ? input.charAt(i + 1) : '\0';
+                    if (isEscapable(next) && (next != 'u' || isHexEscape(input, i + 2))) {
+                        out.append(c).append(next);
+                        i++;
+                    } else {
+                        out.append("\\\\"); // Lone backslash, keep it literally
+                    }
+                } else if (c == '"') {
+                    if (closesString(input, i + 1, open, depth)) {
+                        out.append(c);
+                        inString = false;
+                    } else {
+                        out.append("\\\""); // Quote inside the value
+                    }
+                } else if (c < 0x20) {
+                    appendEscapedControl(out, c);
+                } else {
+                    out.append(c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    if (depth > 0 && open[depth - 1] == '{' && !valueDue[depth - 1] && keyStart[depth - 1] < 0) {
+                        keyStart[depth - 1] = out.length();
+                    }
+                    out.append(c);
+                    inString = true;
+                    break;
+                case ':':
+                    if (depth > 0 && open[depth - 1] == '{') {
+                        keyStart[depth - 1] = -1;
+                        valueDue[depth - 1] = true;
+                    }
+                    out.append(c);
+                    break;
+                case ',':
+                    if (depth > 0 && open[depth - 1] == '{') {
+                        keyStart[depth - 1] = -1;
+                        valueDue[depth - 1] = false;
+                    }
+                    out.append(c);
+                    break;
+                case '{':
+                case '[':
+                    if (depth == MAX_DEPTH) {
+                        return out.toString(); // Pathological nesting, let the parser reject it
+                    }
+                    keyStart[depth] = -1;
+                    valueDue[depth] = false;
+                    open[depth++] = c;
+                    out.append(c);
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        break; // Stray closer
+                    }
+                    // Close anything still open inside (e.g. '}' while an array is open)
+                    char expected = c == '}' ? '{' : '[';
+                    int match = depth - 1;
+                    while (match >= 0 && open[match] != expected) {
+                        match--;
+                    }
+                    if (match < 0) {
+                        break; // No matching opener, drop it
+                    }
+                    while (depth > match) {
+                        closeContainer(out, open, keyStart, --depth);
+                    }
+                    if (depth == 0) {
+                        return out.toString(); // Root closed, ignore trailing prose
+                    }
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+
+        // Truncated input: close the open string or complete the cut scalar, give a value
+        // cut after its ':' null, close containers (dropping a key that never got a value)
+        if (inString) {
+            out.append('"');
+        } else {
+            completeScalar(out);
+        }
+        dropTrailingComma(out);
+        if (endsWith(out, ':')) {
+            out.append("null");
+        }
+        while (depth > 0) {
+            closeContainer(out, open, keyStart, --depth);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Close the container at the given level, first dropping a key without a value and
+     * a trailing comma
+     */
+    private static void closeContainer(StringBuilder out, char[] open, int[] keyStart, int level) {
+        if (open[level] == '{' && keyStart[level] >= 0) {
+            out.setLength(keyStart[level]);
+        }
+        dropTrailingComma(out);
+        out.append(open[level] == '{' ? '}' : ']');
+    }
+
+    /**
+     * Complete a literal cut short ("tr" becomes "true") or trim a number cut after its
+     * sign, point or exponent ("1.5e" becomes "1.5", a lone "-" becomes null)
+     */
+    private static void completeScalar(StringBuilder out) {
+        int end = out.length();
+        int start = end;
+        while (start > 0 && isScalarChar(out.charAt(start - 1))) {
+            start--;
+        }
+        if (start == end) {
+            return;
+        }
+        String token = out.substring(start);
+        for (String literal : LITERALS) {
+            if (literal.startsWith(token)) {
+                out.append(literal, token.length(), literal.length());
+                return;
+            }
+        }
+        int cut = end;
+        while (cut > start && "+-.eE".indexOf(out.charAt(cut - 1)) >= 0) {
+            cut--;
+        }
+        out.setLength(cut);
+        if (cut == start) {
+            out.append("null");
+        }
+    }
+
+    private static boolean isScalarChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.';
+    }
+
+    private static boolean isHexEscape(CharSequence input, int from) {
+        if (from + 4 > input.length()) {
+            return false;
+        }
+        for (int i = from; i < from + 4; i++) {
+            char c = input.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEscapable(char c) {
+        switch (c) {
+            case '"': case '\\': case '/': case 'b': case 'f': case 'n': case 'r': case 't': case 'u':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * A quote ends the string only if what follows is valid after a string value/key
+     */
+    private static boolean closesString(CharSequence input, int from, char[] open, int depth) {
+        int i = from;
+        while (i < input.length() && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        if (i == input.length()) {
+            return true;
+        }
+        char next = input.charAt(i);
+        if (next == ',' || next == '}' || next == ']') {
+            return true;
+        }
+        // A colon only follows object keys
+        return next == ':' && depth > 0 && open[depth - 1] == '{';
+    }
+
+    private static void appendEscapedControl(StringBuilder out, char c) {
+        switch (c) {
+            case '\n': out.append("\\n"); break;
+            case '\r': out.append("\\r"); break;
+            case '\t': out.append("\\t"); break;
+            case '\b': out.append("\\b"); break;
+            case '\f': out.append("\\f"); break;
+            default:
+                out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+        }
+    }
+
+    /**
+     * Remove a ',' that is followed only by whitespace at the end of the buffer
+     */
+    private static void dropTrailingComma(StringBuilder out) {
+        int i = out.length() - 1;
+        while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+            i--;
+        }
+        if (i >= 0 && out.charAt(i) == ',') {
+            out.setLength(i);
+        }
+    }
+
+    private static boolean endsWith(StringBuilder out, char c) {
+        int i = out.length() - 1;
+        while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+            i--;
+        }
+        return i >= 0 && out.charAt(i) == c;
+    }
+}
@@ -0,0 +1,126 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/PackedResponseParser.java
+package com.somdiproy.lambda.suggestions.util;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the answer to a packed prompt (one suggestion object per issue) back into
+ * per-issue suggestions.
+ *
+ * Every top-level {...} object counts as an element, whether it sits in an array, a code
+ * fence or on its own; braces inside string literals are ignored. Elements are matched
+ * to issues by issueId, the first one winning when an ID repeats. A lone element with no
+ * issueId serves every issue: that is how the template fallback answers a packed prompt.
+ * Elements that still do not bind after JsonRepair are dropped.
+ */
+public final class PackedResponseParser {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PackedResponseParser.class);
+
+    private PackedResponseParser() {
+    }
+
+    /**
+     * The element for each issue ID, in the same order; null where none came back or it
+     * could not be bound
+     *
+     * @param reader binds one element to a DeveloperSuggestion
+     */
+    public static List<DeveloperSuggestion> match(String response, List<String> issueIds, ObjectReader reader) {
+        List<DeveloperSuggestion> elements = new ArrayList<>();
+        for (String element : splitTopLevelObjects(response)) {
+            DeveloperSuggestion parsed = bind(element, reader);
+            if (parsed != null) {
+                elements.add(parsed);
+            }
+        }
+
+        DeveloperSuggestion[] matched = new DeveloperSuggestion[issueIds.size()];
+        if (elements.size() == 1 && elements.get(0).getIssueId() == null) {
+            Arrays.fill(matched, elements.get(0));
+            return Arrays.asList(matched);
+        }
+        Map<String, DeveloperSuggestion> byId = new HashMap<>();
+        for (DeveloperSuggestion element : elements) {
+            if (element.getIssueId() != null) {
+                byId.putIfAbsent(element.getIssueId(), element);
+            }
+        }
+        for (int i = 0; i < matched.length; i++) {
+            matched[i] = issueIds.get(i) != null ? byId.get(issueIds.get(i)) : null;
+        }
+        return Arrays.asList(matched);
+    }
+
+    /**
+     * Tokens charged to the index-th of count issues: an even share, with the first issue
+     * also taking the remainder so the shares add up to the total
+     */
+    public static int tokenShare(int totalTokens, int count, int index) {
+        return totalTokens / count + (index == 0 ? totalTokens % count : 0);
+    }
+
+    /**
+     * Every top-level {...} object in the text, in order. Braces inside string literals
+     * are ignored; an object left open at the end of the text is dropped.
+     */
+    public static List<String> splitTopLevelObjects(String response) {
+        List<String> objects = new ArrayList<>();
+        if (response == null) {
+            return objects;
+        }
+        int depth = 0;
+        int start = -1;
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = 0; i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            if (c == '"' && depth > 0) {
+                inString = true;
+            } else if (c == '{') {
+                if (depth++ == 0) {
+                    start = i;
+                }
+            } else if (c == '}' && depth > 0) {
+                if (--depth == 0) {
+                    objects.add(response.substring(start, i + 1));
+                }
+            }
+        }
+        return objects;
+    }
+
+    private static DeveloperSuggestion bind(String element, ObjectReader reader) {
+        try {
+            return reader.readValue(element);
+        } catch (Exception e) {
+            String repaired = JsonRepair.repair(element);
+            if (repaired != null) {
+                try {
+                    return reader.readValue(repaired);
+                } catch (Exception retry) {
+                    e = retry;
+                }
+            }
+            log.warn("Dropping malformed packed suggestion element: {}", e.getMessage());
+            return null;
+        }
+    }
+}
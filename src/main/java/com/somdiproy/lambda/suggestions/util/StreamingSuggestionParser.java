@@ -0,0 +1,161 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/StreamingSuggestionParser.java
+package com.somdiproy.lambda.suggestions.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Incremental parser for a streamed suggestion JSON object.
+ *
+ * Text deltas are fed into a Jackson non-blocking parser as they arrive. Each top-level
+ * field is materialized the moment its value closes and the field listener is called
+ * with its name and all fields so far, so e.g. immediateFix is usable before the model
+ * has written the rest. Anything the model writes before the first '{' (prose, code
+ * fence) is skipped.
+ *
+ * Not thread-safe; one instance per streamed response.
+ */
+public class StreamingSuggestionParser {
+
+    // Tolerate the raw newlines/tabs models tend to leave inside string values
+    private static final JsonFactory STREAMING_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .build();
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> requiredFields;
+    private final BiConsumer<String, Map<String, Object>> fieldListener;
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private int depth;
+    private String currentField;
+    private TokenBuffer valueBuffer;
+
+    private boolean rootClosed;
+    private boolean failed;
+    private String failureMessage;
+
+    public StreamingSuggestionParser(ObjectMapper objectMapper, Set<String> requiredFields,
+                                     BiConsumer<String, Map<String, Object>> fieldListener) {
+        this.objectMapper = objectMapper;
+        this.requiredFields = requiredFields;
+        this.fieldListener = fieldListener;
+    }
+
+    /**
+     * Feed the next text delta. Returns true once no further input is needed: the root
+     * object closed or every required field is complete. After a parse failure input is
+     * ignored but false is returned, so the caller still receives the full text.
+     */
+    public boolean feed(String delta) {
+        if (failed || isFinished() || delta == null || delta.isEmpty()) {
+            return isFinished();
+        }
+
+        try {
+            if (parser == null) {
+                int rootStart = delta.indexOf('{');
+                if (rootStart < 0) {
+                    return false; // Still in the preamble
+                }
+                parser = STREAMING_FACTORY.createNonBlockingByteArrayParser();
+                feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+                delta = delta.substring(rootStart);
+            }
+
+            byte[] bytes = delta.getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            drainTokens();
+        } catch (Exception e) {
+            failed = true;
+            failureMessage = e.getMessage();
+        }
+        return isFinished();
+    }
+
+    private void drainTokens() throws Exception {
+        JsonToken token;
+        while (!rootClosed && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (valueBuffer != null) {
+                bufferValueToken(token);
+                continue;
+            }
+
+            if (token == JsonToken.START_OBJECT && depth == 0) {
+                depth = 1;
+            } else if (token == JsonToken.END_OBJECT && depth == 1) {
+                depth = 0;
+                rootClosed = true;
+                feeder.endOfInput();
+            } else if (token == JsonToken.FIELD_NAME && depth == 1) {
+                currentField = parser.currentName();
+            } else if (depth == 1 && currentField != null) {
+                // Start of a top-level value: buffer it until it closes
+                valueBuffer = new TokenBuffer(parser);
+                bufferValueToken(token);
+            }
+        }
+    }
+
+    private void bufferValueToken(JsonToken token) throws Exception {
+        valueBuffer.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+        }
+        if (depth == 1) {
+            Object value;
+            try (JsonParser bufferedValue = valueBuffer.asParser()) {
+                value = objectMapper.readValue(bufferedValue, Object.class);
+            }
+            fields.put(currentField, value);
+            String completed = currentField;
+            valueBuffer = null;
+            currentField = null;
+            fieldListener.accept(completed, getFields());
+        }
+    }
+
+    public boolean isFinished() {
+        return !failed && (rootClosed || hasRequiredFields());
+    }
+
+    public boolean hasRequiredFields() {
+        return !requiredFields.isEmpty() && fields.keySet().containsAll(requiredFields);
+    }
+
+    public boolean isRootClosed() {
+        return rootClosed;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    /**
+     * Completed top-level fields so far, in arrival order
+     */
+    public Map<String, Object> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+}
@@ -0,0 +1,23 @@
+// src/main/java/com/somdiproy/lambda/suggestions/util/TokenCounter.java
+package com.somdiproy.lambda.suggestions.util;
+
+/**
+ * Counts the tokens a model will bill for a piece of text.
+ *
+ * Implementations may learn from the usage the model actually reports; estimates for
+ * an unknown (null) model use whatever they learned across all models.
+ */
+public interface TokenCounter {
+
+    int count(CharSequence text, String modelId);
+
+    default int count(CharSequence text) {
+        return count(text, null);
+    }
+
+    /**
+     * Feed back the tokens the model reported for text that was counted before
+     */
+    default void observe(CharSequence text, String modelId, int actualTokens) {
+    }
+}
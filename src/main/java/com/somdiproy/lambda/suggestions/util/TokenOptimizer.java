@@ -8,21 +8,46 @@ import java.util.List;
  */
 public class TokenOptimizer {
     
-    // Rough estimation: 1 token ≈ 4 characters for English text
-    private static final double CHARS_PER_TOKEN = 4.0;
+    private static volatile TokenCounter tokenCounter = new HeuristicTokenCounter();
     
     /**
-     * Estimate the number of tokens in a text
-     * This is a rough approximation - actual tokens may vary
+     * Replace the counter behind estimateTokens (e.g. with an exact tokenizer)
+     */
+    public static void setTokenCounter(TokenCounter counter) {
+        tokenCounter = counter;
+    }
+    
+    public static TokenCounter getTokenCounter() {
+        return tokenCounter;
+    }
+    
+    /**
+     * Estimate the number of tokens in a text, calibrated across all models
      */
     public static int estimateTokens(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
-        }
-        
-        // Simple estimation based on character count
-        // In practice, tokenization is more complex
-        return (int) Math.ceil(text.length() / CHARS_PER_TOKEN);
+        return estimateTokens(text, null);
+    }
+    
+    /**
+     * Estimate the number of tokens the given model will count for a text
+     */
+    public static int estimateTokens(String text, String modelId) {
+        return tokenCounter.count(text, modelId);
+    }
+    
+    /**
+     * Calibrate estimates with the token count the model reported for a text
+     */
+    public static void recordUsage(String text, String modelId, int actualTokens) {
+        tokenCounter.observe(text, modelId, actualTokens);
+    }
+    
+    /**
+     * The code around the issue's line that fits maxTokens, with comments, blank lines
+     * and unrelated bodies left out (see CodeContextExtractor)
+     */
+    public static String extractContext(String code, Integer line, String language, int maxTokens) {
+        return CodeContextExtractor.extract(code, line, language, maxTokens);
     }
     
     /**
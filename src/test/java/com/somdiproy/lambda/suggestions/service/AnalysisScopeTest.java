@@ -0,0 +1,110 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/AnalysisScopeTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnalysisScopeTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shutdownInterruptsChildrenAndCancelsTrackedCalls() throws Exception {
+        AnalysisScope scope = new AnalysisScope(Deadline.none(), null);
+        CompletableFuture<String> call = scope.track(new CompletableFuture<>());
+        CountDownLatch started = new CountDownLatch(2);
+        Future<?> first = executor.submit(scope.child(() -> sleepUntilInterrupted(started)));
+        Future<?> second = executor.submit(scope.child(() -> sleepUntilInterrupted(started)));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        assertTrue(scope.shutdown("timeout"));
+        assertFalse("only the first shutdown counts", scope.shutdown("token_budget"));
+        assertEquals("timeout", scope.getShutdownReason());
+
+        assertEquals("interrupted", first.get(1, TimeUnit.SECONDS));
+        assertEquals("interrupted", second.get(1, TimeUnit.SECONDS));
+        assertTrue(call.isCancelled());
+        assertTrue(scope.join(1000));
+    }
+
+    @Test
+    public void nothingStartsAfterShutdown() throws Exception {
+        AnalysisScope scope = new AnalysisScope(Deadline.none(), null);
+        scope.shutdown("token_budget");
+
+        try {
+            executor.submit(scope.child(() -> "ran")).get(1, TimeUnit.SECONDS);
+            fail("a child must not run in a shut down scope");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+        try {
+            scope.ensureOpen();
+            fail("ensureOpen must throw once the scope is shut down");
+        } catch (AnalysisScope.ShutdownException e) {
+            assertTrue(e.getMessage().contains("token_budget"));
+        }
+        assertTrue("a call registered late is cancelled right away",
+                scope.track(new CompletableFuture<String>()).isCancelled());
+    }
+
+    @Test
+    public void closeShutsDownWhatIsStillRunningAndWaitsForIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> child;
+        AnalysisScope scope = new AnalysisScope(Deadline.in(60_000), null);
+        try (scope) {
+            child = executor.submit(scope.child(() -> sleepUntilInterrupted(started)));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+        }
+        assertEquals("closed", scope.getShutdownReason());
+        assertTrue("close must wait for the child", scope.join(0));
+        assertEquals("interrupted", child.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closingAnIdleScopeDoesNotShutItDown() throws Exception {
+        AnalysisScope scope = new AnalysisScope(Deadline.none(), null);
+        assertEquals("done", executor.submit(scope.child(() -> "done")).get(1, TimeUnit.SECONDS));
+        CompletableFuture<String> call = scope.track(new CompletableFuture<>());
+        call.complete("answer");
+
+        scope.close();
+        assertFalse(scope.isShutdown());
+    }
+
+    private static String sleepUntilInterrupted(CountDownLatch started) {
+        started.countDown();
+        try {
+            Thread.sleep(10_000);
+            return "slept";
+        } catch (InterruptedException e) {
+            return "interrupted";
+        }
+    }
+}
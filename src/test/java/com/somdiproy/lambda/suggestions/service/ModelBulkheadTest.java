@@ -0,0 +1,126 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/ModelBulkheadTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ModelBulkheadTest {
+
+    private static final long OPEN_MS = 50;
+
+    @Test
+    public void callsBeyondTheLimitAreRejectedUntilASlotIsReleased() {
+        ModelBulkhead bulkhead = bulkhead(2);
+        ModelBulkhead.Permit first = bulkhead.tryAcquire();
+        ModelBulkhead.Permit second = bulkhead.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(bulkhead.tryAcquire());
+        assertFalse(bulkhead.isCallPermitted());
+
+        first.release();
+        first.release(); // Idempotent, must not free a second slot
+        assertNotNull(bulkhead.tryAcquire());
+        assertNull(bulkhead.tryAcquire());
+    }
+
+    @Test
+    public void breakerOpensOnceTheFailureRateIsReached() {
+        ModelBulkhead bulkhead = bulkhead(10);
+        complete(bulkhead, true);
+        complete(bulkhead, false);
+        complete(bulkhead, true);
+        assertEquals(ModelBulkhead.State.CLOSED, bulkhead.getState()); // Fewer than minCalls
+        complete(bulkhead, false);
+
+        assertEquals(ModelBulkhead.State.OPEN, bulkhead.getState());
+        assertNull(bulkhead.tryAcquire());
+    }
+
+    @Test
+    public void onlyOneProbeIsLetThroughWhileHalfOpen() throws Exception {
+        ModelBulkhead bulkhead = openedBulkhead();
+        Thread.sleep(OPEN_MS + 20);
+
+        assertEquals(ModelBulkhead.State.HALF_OPEN, bulkhead.getState());
+        ModelBulkhead.Permit probe = bulkhead.tryAcquire();
+        assertNotNull(probe);
+        assertTrue(probe.isProbe());
+        assertNull(bulkhead.tryAcquire());
+
+        probe.recordSuccess();
+        probe.release();
+        assertEquals(ModelBulkhead.State.CLOSED, bulkhead.getState());
+    }
+
+    @Test
+    public void lateResultsOfCallsAdmittedBeforeOpeningDoNotChangeAHalfOpenBreaker() throws Exception {
+        ModelBulkhead bulkhead = bulkhead(10);
+        ModelBulkhead.Permit lateSuccess = bulkhead.tryAcquire();
+        ModelBulkhead.Permit lateFailure = bulkhead.tryAcquire();
+        complete(bulkhead, false);
+        complete(bulkhead, false);
+        complete(bulkhead, false);
+        complete(bulkhead, false);
+        assertEquals(ModelBulkhead.State.OPEN, bulkhead.getState());
+        Thread.sleep(OPEN_MS + 20);
+
+        ModelBulkhead.Permit probe = bulkhead.tryAcquire();
+        assertTrue(probe.isProbe());
+        lateSuccess.recordSuccess();
+        lateFailure.recordFailure();
+        assertEquals(ModelBulkhead.State.HALF_OPEN, bulkhead.getState());
+
+        probe.recordFailure();
+        probe.release();
+        assertEquals(ModelBulkhead.State.OPEN, bulkhead.getState());
+    }
+
+    @Test
+    public void aProbeEndingWithoutAnOutcomeFreesTheProbeSlot() throws Exception {
+        ModelBulkhead bulkhead = openedBulkhead();
+        Thread.sleep(OPEN_MS + 20);
+
+        bulkhead.tryAcquire().release(); // e.g. cancelled
+        assertEquals(ModelBulkhead.State.HALF_OPEN, bulkhead.getState());
+        assertNotNull(bulkhead.tryAcquire());
+    }
+
+    @Test
+    public void disabledBreakerNeverOpens() {
+        ModelBulkhead bulkhead = new ModelBulkhead("model", 10, false, 4, 4, 0.5, OPEN_MS);
+        for (int i = 0; i < 10; i++) {
+            complete(bulkhead, false);
+        }
+        assertEquals(ModelBulkhead.State.CLOSED, bulkhead.getState());
+        assertNotNull(bulkhead.tryAcquire());
+    }
+
+    private static ModelBulkhead bulkhead(int maxConcurrent) {
+        return new ModelBulkhead("model", maxConcurrent, true, 4, 4, 0.5, OPEN_MS);
+    }
+
+    private static ModelBulkhead openedBulkhead() {
+        ModelBulkhead bulkhead = bulkhead(10);
+        for (int i = 0; i < 4; i++) {
+            complete(bulkhead, false);
+        }
+        assertEquals(ModelBulkhead.State.OPEN, bulkhead.getState());
+        return bulkhead;
+    }
+
+    private static void complete(ModelBulkhead bulkhead, boolean success) {
+        ModelBulkhead.Permit permit = bulkhead.tryAcquire();
+        if (success) {
+            permit.recordSuccess();
+        } else {
+            permit.recordFailure();
+        }
+        permit.release();
+    }
+}
@@ -0,0 +1,141 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/NovaInvokerHedgingTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NovaInvokerHedgingTest {
+
+    private static final String SLOW = "amazon.nova-pro-v1:0";
+    private static final String FAST = "amazon.nova-lite-v1:0";
+    private static final String FAILING = "amazon.nova-micro-v1:0";
+    private static final long HEDGE_AFTER_MS = 100;
+
+    private ScheduledExecutorService scheduler;
+    private Set<String> cancelled;
+    private NovaInvokerService invoker;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        cancelled = ConcurrentHashMap.newKeySet();
+        Map<String, Long> latencies = Map.of(SLOW, 1000L, FAST, 20L, FAILING, 20L);
+
+        // Model calls answer after a fixed latency per model instead of going to Bedrock
+        invoker = new NovaInvokerService("us-east-1") {
+            @Override
+            public CompletableFuture<NovaResponse> invokeNovaAsync(String modelId, String prompt, int maxTokens,
+                                                                   double temperature, double topP,
+                                                                   Deadline deadline) {
+                CompletableFuture<NovaResponse> call = new CompletableFuture<>();
+                scheduler.schedule(() -> {
+                    if (FAILING.equals(modelId)) {
+                        call.completeExceptionally(new NovaInvokerException("Bedrock service error"));
+                    } else {
+                        call.complete(NovaResponse.builder().modelId(modelId).totalTokens(10).successful(true)
+                                .build());
+                    }
+                }, latencies.get(modelId), TimeUnit.MILLISECONDS);
+                call.whenComplete((r, t) -> {
+                    if (call.isCancelled()) {
+                        cancelled.add(modelId);
+                    }
+                });
+                return call;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void slowCallIsHedgedAndTheHedgeWins() throws Exception {
+        NovaInvokerService.NovaResponse response = hedged(SLOW, FAST, true).get(2, TimeUnit.SECONDS);
+
+        assertEquals(FAST, response.getModelId());
+        assertEquals("won", response.getMetadata().get("hedge"));
+        // The loser is cancelled by the result's completion callbacks
+        long until = System.currentTimeMillis() + 1000;
+        while (!cancelled.contains(SLOW) && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertTrue("the slow call must be cancelled", cancelled.contains(SLOW));
+        Map<?, ?> stats = hedging();
+        assertEquals(1L, stats.get("hedged"));
+        assertEquals(1L, stats.get("won"));
+    }
+
+    @Test
+    public void callAnsweringBeforeTheHedgeDelayIsNotHedged() throws Exception {
+        NovaInvokerService.NovaResponse response = hedged(FAST, SLOW, true).get(2, TimeUnit.SECONDS);
+        Thread.sleep(HEDGE_AFTER_MS * 2); // The hedge timer must not fire afterwards
+
+        assertEquals(FAST, response.getModelId());
+        assertNull(response.getMetadata().get("hedge"));
+        assertEquals(0L, hedging().get("hedged"));
+    }
+
+    @Test
+    public void hedgeIsSkippedWhenItsTokensCannotBeReserved() throws Exception {
+        NovaInvokerService.NovaResponse response = hedged(SLOW, FAST, false).get(2, TimeUnit.SECONDS);
+
+        assertEquals(SLOW, response.getModelId());
+        assertNull(response.getMetadata().get("hedge"));
+        assertEquals(0L, hedging().get("hedged"));
+        assertEquals(1L, hedging().get("declined"));
+    }
+
+    @Test
+    public void failureBeforeTheHedgeIsDueFailsTheCall() throws Exception {
+        try {
+            hedged(FAILING, FAST, true).get(2, TimeUnit.SECONDS);
+            fail("the failed call must not wait for a hedge");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NovaInvokerService.NovaInvokerException);
+        }
+        assertEquals(0L, hedging().get("hedged"));
+    }
+
+    @Test
+    public void cancelledCallOnlyFeedsTheLatencyPercentiles() {
+        ModelRouter router = new ModelRouter(List.of(SLOW), Map.of(), Map.of(), model -> true);
+        for (int i = 0; i < 5; i++) {
+            router.recordCall(SLOW, 100, 500, true);
+        }
+        router.recordCancelledCall(SLOW, 10_000);
+
+        Map<?, ?> stats = (Map<?, ?>) router.getStatistics().get(SLOW);
+        assertEquals(5, stats.get("calls"));
+        assertEquals(10_000L, stats.get("p95LatencyMs"));
+        assertEquals(10_000L, router.hedgeDelayMs(SLOW));
+    }
+
+    private CompletableFuture<NovaInvokerService.NovaResponse> hedged(String modelId, String hedgeModelId,
+                                                                      boolean admitHedge) {
+        return invoker.invokeNovaHedged(modelId, hedgeModelId, "prompt", 100, 0.3, 0.9, HEDGE_AFTER_MS,
+                () -> admitHedge, Deadline.in(10_000));
+    }
+
+    private Map<?, ?> hedging() {
+        return (Map<?, ?>) invoker.getStatistics().get("hedging");
+    }
+}
@@ -0,0 +1,91 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/SuggestionCacheTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+import com.somdiproy.lambda.suggestions.util.TokenOptimizer;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class SuggestionCacheTest {
+
+    private static final String MODEL = "amazon.nova-pro-v1:0";
+    private static final String SNIPPET = "void find(String id) {\n    query(\"SELECT \" + id);\n    x(); y();\n}";
+
+    @Test
+    public void formattingOnlyChangesShareAKey() {
+        // A blank line inserted above the finding moves it from line 2 to line 3
+        Map<String, Object> reformatted = issue(3, "User input in query",
+                "void find(String id) {\n\n        query(\"SELECT \" + id);\n  x(); y();\n}");
+
+        assertEquals(key(issue(2, "User input in query", SNIPPET), "security", MODEL),
+                key(reformatted, "security", MODEL));
+    }
+
+    @Test
+    public void findingsWithDifferentContextDoNotShareAKey() {
+        StringBuilder code = new StringBuilder("void run() {\n");
+        for (int i = 0; i < 40; i++) {
+            code.append("    step").append(i).append("(input, output, buffer);\n");
+        }
+        code.append("}");
+        Map<String, Object> first = issue(3, "User input in query", code.toString());
+        Map<String, Object> last = issue(40, "User input in query", code.toString());
+
+        assertNotEquals(key(first, "security", MODEL), key(last, "security", MODEL));
+    }
+
+    @Test
+    public void differentDescriptionsDoNotShareAKey() {
+        assertNotEquals(key(issue(2, "User input in query", SNIPPET), "security", MODEL),
+                key(issue(2, "Unclosed connection", SNIPPET), "security", MODEL));
+    }
+
+    @Test
+    public void modelAndCategoryArePartOfTheKey() {
+        Map<String, Object> issue = issue(2, "User input in query", SNIPPET);
+        assertNotEquals(key(issue, "security", MODEL), key(issue, "security", "amazon.nova-lite-v1:0"));
+        assertNotEquals(key(issue, "security", MODEL), key(issue, "quality", MODEL));
+    }
+
+    @Test
+    public void hitWithAMalformedLineHasNoLine() {
+        SuggestionCache cache = new SuggestionCache(10, null, null, 0);
+        Map<String, Object> issue = issue(2, "User input in query", SNIPPET);
+        issue.put("id", "issue-1");
+        cache.put(issue, "security", MODEL, SNIPPET,
+                DeveloperSuggestion.builder().issueId("issue-1").modelUsed(MODEL).tokensUsed(100).build());
+
+        issue.put("line", "n/a");
+        DeveloperSuggestion hit = cache.get(issue, "security", MODEL, SNIPPET);
+        assertNull(hit.getLine());
+        issue.remove("line");
+        assertNull(cache.get(issue, "security", MODEL, SNIPPET).getLine());
+        issue.put("line", " 7 ");
+        assertEquals(Integer.valueOf(7), cache.get(issue, "security", MODEL, SNIPPET).getLine());
+    }
+
+    /**
+     * Key over the context the handler sends for the issue
+     */
+    private static String key(Map<String, Object> issue, String category, String modelId) {
+        String context = TokenOptimizer.extractContext((String) issue.get("codeSnippet"), (Integer) issue.get("line"),
+                (String) issue.get("language"), 20);
+        return SuggestionCache.keyFor(issue, category, modelId, context);
+    }
+
+    private static Map<String, Object> issue(int line, String description, String codeSnippet) {
+        Map<String, Object> issue = new HashMap<>();
+        issue.put("type", "SQL_INJECTION");
+        issue.put("language", "java");
+        issue.put("line", line);
+        issue.put("description", description);
+        issue.put("codeSnippet", codeSnippet);
+        return issue;
+    }
+}
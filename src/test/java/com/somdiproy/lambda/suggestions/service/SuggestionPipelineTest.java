@@ -0,0 +1,196 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/SuggestionPipelineTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionPipelineTest {
+
+    private static final long CALL_MS = 100;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void issuesOutOfTimeAreCarriedOverAndCompletedOnResume() {
+        List<List<Map<String, Object>>> units = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            units.add(List.of(Map.of("id", "issue-" + i)));
+        }
+
+        // First invocation: the deadline runs out after a few calls
+        SuggestionPipeline.Result first = run(units, Deadline.in(250));
+        assertFalse("the first run should not finish everything", first.unprocessed.isEmpty());
+        assertFalse("the first run should finish something", first.suggestions.isEmpty());
+
+        // What the checkpoint records as processed must have a real suggestion
+        Set<Object> unprocessedIds = ids(first.unprocessed);
+        Set<String> firstIds = suggestionIds(first.suggestions);
+        for (List<Map<String, Object>> unit : units) {
+            Object id = unit.get(0).get("id");
+            if (!unprocessedIds.contains(id)) {
+                assertTrue(id + " recorded as processed without a suggestion", firstIds.contains(id));
+            }
+        }
+
+        // Resumed invocation: only the carried-over issues, with a fresh deadline
+        List<List<Map<String, Object>>> remaining = first.unprocessed.stream().map(List::of)
+                .collect(Collectors.toList());
+        SuggestionPipeline.Result second = run(remaining, Deadline.in(10_000));
+        assertTrue(second.unprocessed.isEmpty());
+
+        Set<String> all = new HashSet<>(firstIds);
+        all.addAll(suggestionIds(second.suggestions));
+        assertEquals(units.size(), all.size());
+        assertEquals(units.size(), first.suggestions.size() + second.suggestions.size());
+        for (DeveloperSuggestion suggestion : first.suggestions) {
+            assertEquals("nova", suggestion.getModelUsed());
+        }
+        for (DeveloperSuggestion suggestion : second.suggestions) {
+            assertEquals("nova", suggestion.getModelUsed());
+        }
+    }
+
+    @Test
+    public void partialSuggestionsOfAPackedUnitAreKept() {
+        List<List<Map<String, Object>>> units = List.of(List.of(Map.of("id", "a"), Map.of("id", "b")));
+        AnalysisScope scope = new AnalysisScope(Deadline.in(10_000), null);
+        SuggestionPipeline.Result result = new SuggestionPipeline(executor, 2).run(units,
+                unit -> {
+                    throw new SuggestionPipeline.NotProcessedException("out of time", List.of(suggestion("a")));
+                },
+                unit -> true, unit -> 0L, s -> { }, () -> 60_000L, 10, 5, Integer.MAX_VALUE, scope);
+
+        assertEquals(Set.of("a"), suggestionIds(result.suggestions));
+        assertEquals(Set.of("b"), ids(result.unprocessed));
+        assertEquals(1, result.completed);
+    }
+
+    @Test
+    public void issuesOutOfBudgetAreReportedAsBudgetExhausted() {
+        List<List<Map<String, Object>>> units = List.of(List.of(Map.of("id", "a")), List.of(Map.of("id", "b")));
+        AnalysisScope scope = new AnalysisScope(Deadline.in(10_000), null);
+        SuggestionPipeline.Result result = new SuggestionPipeline(executor, 1).run(units,
+                unit -> {
+                    if ("b".equals(unit.get(0).get("id"))) {
+                        throw new SuggestionPipeline.NotProcessedException("out of budget", List.of(), true);
+                    }
+                    return List.of(suggestion("a"));
+                },
+                unit -> true, unit -> 0L, s -> { }, () -> 60_000L, 10, 5, Integer.MAX_VALUE, scope);
+
+        assertTrue(result.budgetExhausted);
+        assertEquals(Set.of("b"), ids(result.unprocessed));
+    }
+
+    @Test
+    public void unitsRefusedAdmissionAreReportedUnprocessed() {
+        List<List<Map<String, Object>>> units = List.of(List.of(Map.of("id", "a")), List.of(Map.of("id", "b")));
+        AnalysisScope scope = new AnalysisScope(Deadline.in(10_000), null);
+        SuggestionPipeline.Result result = new SuggestionPipeline(executor, 1).run(units,
+                unit -> List.of(suggestion((String) unit.get(0).get("id"))),
+                unit -> "a".equals(unit.get(0).get("id")), unit -> 0L, s -> { }, () -> 60_000L, 10, 5,
+                Integer.MAX_VALUE, scope);
+
+        assertEquals(Set.of("a"), suggestionIds(result.suggestions));
+        assertEquals(Set.of("b"), ids(result.unprocessed));
+        assertTrue(result.budgetExhausted);
+    }
+
+    @Test
+    public void issuesOutOfTimeDoNotExhaustTheBudget() {
+        List<List<Map<String, Object>>> units = List.of(List.of(Map.of("id", "a")));
+        AnalysisScope scope = new AnalysisScope(Deadline.in(10_000), null);
+        SuggestionPipeline.Result result = new SuggestionPipeline(executor, 1).run(units,
+                unit -> {
+                    throw new SuggestionPipeline.NotProcessedException("out of time", List.of());
+                },
+                unit -> true, unit -> 0L, s -> { }, () -> 60_000L, 10, 5, Integer.MAX_VALUE, scope);
+
+        assertFalse(result.budgetExhausted);
+        assertEquals(Set.of("a"), ids(result.unprocessed));
+    }
+
+    @Test
+    public void suggestionsAreReturnedInDispatchOrder() {
+        List<List<Map<String, Object>>> units = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            units.add(List.of(Map.of("id", "issue-" + i)));
+        }
+        AnalysisScope scope = new AnalysisScope(Deadline.in(10_000), null);
+        SuggestionPipeline.Result result = new SuggestionPipeline(executor, 4).run(units,
+                unit -> {
+                    String id = (String) unit.get(0).get("id");
+                    sleep(60 - 10 * Integer.parseInt(id.substring(id.length() - 1)));
+                    return List.of(suggestion(id));
+                },
+                unit -> true, unit -> 0L, s -> { }, () -> 60_000L, 10, 5, Integer.MAX_VALUE, scope);
+
+        List<String> order = result.suggestions.stream().map(DeveloperSuggestion::getIssueId)
+                .collect(Collectors.toList());
+        assertEquals(List.of("issue-0", "issue-1", "issue-2", "issue-3", "issue-4", "issue-5"), order);
+    }
+
+    /**
+     * Worker that behaves like the handler's: a call that cannot finish before the
+     * deadline is not made and the unit is reported not processed
+     */
+    private SuggestionPipeline.Result run(List<List<Map<String, Object>>> units, Deadline deadline) {
+        Function<List<Map<String, Object>>, List<DeveloperSuggestion>> worker = unit -> {
+            if (!deadline.allows(CALL_MS)) {
+                throw new SuggestionPipeline.NotProcessedException("out of time", List.of());
+            }
+            sleep(CALL_MS);
+            return List.of(suggestion((String) unit.get(0).get("id")));
+        };
+        try (AnalysisScope scope = new AnalysisScope(deadline, null)) {
+            return new SuggestionPipeline(executor, 2).run(units, worker, unit -> true, unit -> 0L, s -> { },
+                    () -> 60_000L, 10, 5, Integer.MAX_VALUE, scope);
+        }
+    }
+
+    private static DeveloperSuggestion suggestion(String issueId) {
+        return DeveloperSuggestion.builder().issueId(issueId).modelUsed("nova").tokensUsed(10).build();
+    }
+
+    private static Set<Object> ids(List<Map<String, Object>> issues) {
+        return issues.stream().map(issue -> issue.get("id")).collect(Collectors.toSet());
+    }
+
+    private static Set<String> suggestionIds(List<DeveloperSuggestion> suggestions) {
+        return suggestions.stream().map(DeveloperSuggestion::getIssueId).collect(Collectors.toSet());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/TokenBucketRateLimiterTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final String MODEL = "amazon.nova-pro-v1:0";
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void burstIsGrantedThenCallsMustWait() {
+        TokenBucketRateLimiter limiter = limiter(1.0, 3);
+        assertTrue(limiter.tryAcquire(MODEL));
+        assertTrue(limiter.tryAcquire(MODEL));
+        assertTrue(limiter.tryAcquire(MODEL));
+        assertFalse(limiter.tryAcquire(MODEL));
+
+        long wait = limiter.millisUntilAvailable(MODEL);
+        assertTrue("wait " + wait, wait > 0 && wait <= 1000);
+    }
+
+    @Test
+    public void acquireCompletesWhenThePermitIsDueWithoutBlocking() throws Exception {
+        TokenBucketRateLimiter limiter = limiter(10.0, 1);
+        assertTrue(limiter.acquire(MODEL).isDone());
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> second = limiter.acquire(MODEL);
+        assertFalse("the second permit is 100ms away", second.isDone());
+        second.get(1, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    public void acquireThatWouldOutwaitItsLimitReservesNothing() {
+        TokenBucketRateLimiter limiter = limiter(1.0, 1);
+        assertTrue(limiter.tryAcquire(MODEL));
+
+        CompletableFuture<Void> timedOut = limiter.acquire(MODEL, 10);
+        assertTrue(timedOut.isCompletedExceptionally());
+        try {
+            timedOut.join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        // Still only the one permit taken: the next is due in about a second, not two
+        long wait = limiter.millisUntilAvailable(MODEL);
+        assertTrue("wait " + wait, wait > 0 && wait <= 1000);
+    }
+
+    @Test
+    public void cancelledPermitIsHandedBack() {
+        TokenBucketRateLimiter limiter = limiter(0.01, 1);
+        assertTrue(limiter.acquire(MODEL).isDone());
+
+        // Queue up permits 100s and 200s out, then give up on both
+        CompletableFuture<Void> second = limiter.acquire(MODEL);
+        CompletableFuture<Void> third = limiter.acquire(MODEL);
+        assertFalse(second.isDone());
+        assertTrue(third.cancel(false));
+        assertTrue(second.cancel(false));
+        assertTrue(second.cancel(false));
+
+        long wait = limiter.millisUntilAvailable(MODEL);
+        assertTrue("wait " + wait, wait > 0 && wait <= 100_000);
+    }
+
+    @Test
+    public void timedOutAcquireLeavesTheNextTryAcquireUnaffected() throws Exception {
+        TokenBucketRateLimiter limiter = limiter(10.0, 1);
+        assertTrue(limiter.tryAcquire(MODEL));
+
+        // Waiter gives up before its permit comes due
+        CompletableFuture<Void> permit = limiter.acquire(MODEL);
+        try {
+            permit.get(10, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            permit.cancel(false);
+        }
+
+        Thread.sleep(150);
+        assertTrue(limiter.tryAcquire(MODEL));
+    }
+
+    @Test
+    public void concurrentCallersNeverGetMoreThanTheBurst() throws Exception {
+        // One permit per 100s: only the burst can be granted during the test
+        TokenBucketRateLimiter limiter = limiter(0.01, 5);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                callers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        if (limiter.tryAcquire(MODEL)) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> caller : callers) {
+                caller.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5, granted.get());
+    }
+
+    @Test
+    public void modelsHaveIndependentBuckets() {
+        TokenBucketRateLimiter limiter = limiter(1.0, 1);
+        assertTrue(limiter.tryAcquire(MODEL));
+        assertFalse(limiter.tryAcquire(MODEL));
+        assertTrue(limiter.tryAcquire("amazon.nova-lite-v1:0"));
+    }
+
+    @Test
+    public void limitsParseModelIdsContainingColons() {
+        Map<String, TokenBucketRateLimiter.Limit> limits = TokenBucketRateLimiter
+                .parseLimits("amazon.nova-lite-v1:0=2.0:5, amazon.nova-pro-v1:0=0.5:2,broken,bad=x:1");
+        assertEquals(2, limits.size());
+        assertEquals(2.0, limits.get("amazon.nova-lite-v1:0").getPermitsPerSecond(), 0.0);
+        assertEquals(5, limits.get("amazon.nova-lite-v1:0").getBurst());
+        assertEquals(2, limits.get("amazon.nova-pro-v1:0").getBurst());
+    }
+
+    @Test
+    public void sustainableConcurrencyIsBurstPlusPermitsDuringOneCall() {
+        assertEquals(5 + 6, limiter(2.0, 5).sustainableConcurrency(MODEL, 3000));
+    }
+
+    private TokenBucketRateLimiter limiter(double permitsPerSecond, int burst) {
+        return new TokenBucketRateLimiter(Map.of(MODEL, new TokenBucketRateLimiter.Limit(permitsPerSecond, burst)),
+                scheduler);
+    }
+}
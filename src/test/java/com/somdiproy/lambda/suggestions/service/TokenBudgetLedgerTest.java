@@ -0,0 +1,128 @@
+// src/test/java/com/somdiproy/lambda/suggestions/service/TokenBudgetLedgerTest.java
+package com.somdiproy.lambda.suggestions.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBudgetLedgerTest {
+
+    @Test
+    public void concurrentReservationsNeverExceedTheLimit() throws Exception {
+        TokenBudgetLedger ledger = new TokenBudgetLedger(10_000, Map.of("security", 50_000L, "quality", 50_000L));
+        AtomicLong reserved = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String category = t % 2 == 0 ? "security" : "quality";
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    TokenBudgetLedger.Reservation reservation;
+                    while ((reservation = ledger.reserve(category, 300)) != null) {
+                        reserved.addAndGet(reservation.getTokens());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue("reserved " + reserved.get(), reserved.get() <= 10_000);
+        // Nothing lost either: what is left plus what was reserved is the whole budget
+        assertEquals(10_000, reserved.get() + available(ledger));
+        assertTrue(available(ledger) < 2 * 300);
+    }
+
+    @Test
+    public void reconcileBooksActualUsageAndReturnsTheRestToThePool() {
+        // Security is guaranteed half of the budget, the other half is the pool
+        TokenBudgetLedger ledger = new TokenBudgetLedger(1000, Map.of("security", 1000L));
+        TokenBudgetLedger.Reservation reservation = ledger.reserve("security", 400);
+        assertNotNull(reservation);
+        assertEquals(100L, share(ledger, "security"));
+        assertEquals(500L, pool(ledger));
+
+        reservation.reconcile(150);
+        reservation.reconcile(400); // Settled once only
+        assertEquals(150L, ledger.getSpent());
+        assertEquals(750L, pool(ledger));
+
+        // Another category can use what security did not
+        assertNotNull(ledger.reserve("performance", 750));
+        assertNull(ledger.reserve("security", 101));
+        assertEquals(1L, ledger.getStatistics().get("rejected"));
+    }
+
+    @Test
+    public void cancelGivesTheWholeReservationBack() {
+        TokenBudgetLedger ledger = new TokenBudgetLedger(1000, Map.of("security", 1000L));
+        TokenBudgetLedger.Reservation reservation = ledger.reserve("security", 700);
+        assertEquals(0L, share(ledger, "security"));
+        assertEquals(300L, pool(ledger));
+
+        reservation.cancel();
+        reservation.reconcile(700); // Already settled
+        assertEquals(500L, share(ledger, "security"));
+        assertEquals(500L, pool(ledger));
+        assertEquals(0L, ledger.getSpent());
+    }
+
+    @Test
+    public void usageBeyondTheReservationComesFromThePoolThenCountsAsOverdraft() {
+        TokenBudgetLedger ledger = new TokenBudgetLedger(1000, Map.of("security", 1000L));
+        TokenBudgetLedger.Reservation reservation = ledger.reserve("security", 900);
+        assertEquals(100L, pool(ledger));
+
+        reservation.reconcile(1200);
+        assertEquals(1200L, ledger.getSpent());
+        assertEquals(0L, pool(ledger));
+        assertEquals(200L, ledger.getStatistics().get("overdraft"));
+    }
+
+    @Test
+    public void sharesAreCappedAtTheCategoryDemand() {
+        TokenBudgetLedger ledger = new TokenBudgetLedger(1000, Map.of("quality", 100L));
+        assertEquals(100L, share(ledger, "quality"));
+        assertEquals(900L, pool(ledger));
+    }
+
+    private static long available(TokenBudgetLedger ledger) {
+        long available = pool(ledger);
+        for (Long share : shares(ledger).values()) {
+            available += share;
+        }
+        return available;
+    }
+
+    private static long pool(TokenBudgetLedger ledger) {
+        return (Long) ledger.getStatistics().get("pool");
+    }
+
+    private static long share(TokenBudgetLedger ledger, String category) {
+        return shares(ledger).get(category);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> shares(TokenBudgetLedger ledger) {
+        return (Map<String, Long>) ledger.getStatistics().get("shares");
+    }
+}
@@ -0,0 +1,76 @@
+// src/test/java/com/somdiproy/lambda/suggestions/templates/FixTemplateSetTest.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FixTemplateSetTest {
+
+    private static final FixTemplateSet SET = new FixTemplateSet("templates/test-fix-templates.json");
+
+    private static Map<String, Object> issue(String type, String description, String language) {
+        Map<String, Object> issue = new HashMap<>();
+        issue.put("type", type);
+        issue.put("description", description);
+        issue.put("language", language);
+        return issue;
+    }
+
+    @Test
+    public void exactTypeBeatsKeywordHits() {
+        FixTemplateSet.Match match = SET.find(issue("cache-miss", "n+1 in a loop on the hot path", null));
+
+        assertEquals("CACHE_MISS", match.template.getIssueType());
+        assertEquals(Integer.MAX_VALUE, match.score);
+    }
+
+    @Test
+    public void exactTypePrefersTheLanguageTemplate() {
+        assertEquals("java", SET.find(issue("LOOP_HOTSPOT", null, "Java")).template.getLanguage());
+        assertEquals("*", SET.find(issue("LOOP_HOTSPOT", null, "python")).template.getLanguage());
+    }
+
+    @Test
+    public void keywordsInTheTypeOutweighTheDescription() {
+        // "n 1" in the type scores 3; two "cache" hits in the description score 2
+        FixTemplateSet.Match match = SET.find(issue("N+1 select", "cache the cache", null));
+
+        assertEquals("N_PLUS_ONE", match.template.getIssueType());
+        assertEquals(3, match.score);
+    }
+
+    @Test
+    public void tiesGoToTheTypeListedFirst() {
+        // "loop" is a keyword of both LOOP_HOTSPOT and CACHE_MISS
+        FixTemplateSet.Match match = SET.find(issue("UNKNOWN", "work done in a loop", null));
+
+        assertEquals("LOOP_HOTSPOT", match.template.getIssueType());
+        assertEquals(1, match.score);
+    }
+
+    @Test
+    public void wordStartAnchoringHoldsThroughFind() {
+        assertNull(SET.find(issue("UNKNOWN", "upgrade to version 1", null)));
+        assertEquals("N_PLUS_ONE", SET.find("N+1 query in the report", null).template.getIssueType());
+    }
+
+    @Test
+    public void nothingMatchedResolvesToTheDefault() {
+        Map<String, Object> issue = issue("UNKNOWN", "nothing to see", null);
+
+        assertNull(SET.find(issue));
+        assertTrue(SET.resolve(issue).isDefault());
+        assertEquals("General fix", SET.resolve(issue).getPrototype().getImmediateFix().getTitle());
+    }
+
+    @Test
+    public void defaultTypeIsNotAnExactHit() {
+        assertEquals("CACHE_MISS", SET.find(issue("DEFAULT", "cache", null)).template.getIssueType());
+    }
+}
@@ -0,0 +1,66 @@
+// src/test/java/com/somdiproy/lambda/suggestions/templates/KeywordAutomatonTest.java
+package com.somdiproy.lambda.suggestions.templates;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class KeywordAutomatonTest {
+
+    private static int[] scan(KeywordAutomaton automaton, int values, String text) {
+        int[] scores = new int[values];
+        automaton.accumulate(text, 1, scores);
+        return scores;
+    }
+
+    @Test
+    public void normalizesCaseAndSeparators() {
+        assertEquals("sql injection", KeywordAutomaton.normalize("  SQL__Injection-- "));
+        assertEquals("n 1", KeywordAutomaton.normalize("N+1"));
+        assertEquals("", KeywordAutomaton.normalize("--"));
+    }
+
+    @Test
+    public void keywordMatchesWhateverSeparatesItsWords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("sql injection"), new int[] {0});
+
+        for (String text : new String[] {"SQL_INJECTION", "sql-injection", "Possible SQL  injection here"}) {
+            assertArrayEquals(text, new int[] {1}, scan(automaton, 1, text));
+        }
+        assertArrayEquals(new int[] {0}, scan(automaton, 1, "sqlinjection"));
+    }
+
+    @Test
+    public void keywordsOnlyMatchAtTheStartOfAWord() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("n 1", "loop"), new int[] {0, 1});
+
+        assertArrayEquals(new int[] {0, 0}, scan(automaton, 2, "version 1"));
+        assertArrayEquals(new int[] {1, 0}, scan(automaton, 2, "N+1 query"));
+        assertArrayEquals(new int[] {1, 0}, scan(automaton, 2, "an n 1 select"));
+        assertArrayEquals(new int[] {0, 1}, scan(automaton, 2, "nested loops"));
+        assertArrayEquals(new int[] {0, 0}, scan(automaton, 2, "whileloop"));
+    }
+
+    @Test
+    public void everyOccurrenceAddsTheWeight() {
+        KeywordAutomaton automaton = new KeywordAutomaton(
+                List.of("nested loop", "loop", "cache"), new int[] {0, 1, 1});
+        int[] scores = new int[2];
+        automaton.accumulate("nested loop inside a loop; no cache", 3, scores);
+
+        assertArrayEquals(new int[] {3, 9}, scores);
+    }
+
+    @Test
+    public void emptyKeywordsAndNullTextMatchNothing() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("", "--", "leak"), new int[] {0, 0, 1});
+        int[] scores = new int[2];
+        automaton.accumulate(null, 1, scores);
+        automaton.accumulate("  anything at all  ", 1, scores);
+
+        assertArrayEquals(new int[] {0, 0}, scores);
+    }
+}
@@ -0,0 +1,180 @@
+// src/test/java/com/somdiproy/lambda/suggestions/util/CodeContextExtractorTest.java
+package com.somdiproy.lambda.suggestions.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodeContextExtractorTest {
+
+    private static final int LARGE = 10_000;
+
+    /**
+     * Lines "        int vN = N;" for N in [from, to), one per line
+     */
+    private static String filler(String indent, int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append(indent).append("int v").append(i).append(" = ").append(i).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    private static int lineOf(String code, String text) {
+        String[] lines = code.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].contains(text)) {
+                return i + 1;
+            }
+        }
+        throw new AssertionError("no line containing " + text);
+    }
+
+    /**
+     * Tokens the extractor charges for its output; the "..." gap lines are free
+     */
+    private static int charged(String out) {
+        int used = 0;
+        for (String line : out.split("\n", -1)) {
+            if (!line.trim().equals("...")) {
+                used += TokenOptimizer.estimateTokens(line) + 1;
+            }
+        }
+        return used;
+    }
+
+    @Test
+    public void issueLineIsKeptVerbatimWhileOtherCommentsGo() {
+        String code = "// header comment\n"
+                + "int a = 1; // trailing\n"
+                + "\n"
+                + "int b = a + 1; // the issue\n"
+                + "/* block\n"
+                + "   comment */ int c = b;\n";
+        String out = CodeContextExtractor.extract(code, 4, "java", LARGE);
+
+        assertEquals("int a = 1;\nint b = a + 1; // the issue\n int c = b;", out);
+    }
+
+    @Test
+    public void issueLineSurvivesATightBudget() {
+        String code = "class A {\n    void f() {\n" + filler("        ", 0, 40)
+                + "        danger(); // here\n" + filler("        ", 40, 80) + "    }\n}";
+        String out = CodeContextExtractor.extract(code, lineOf(code, "danger()"), "java", 30);
+
+        assertTrue(out, out.contains("        danger(); // here"));
+        assertTrue(out, out.contains("class A {"));
+        assertTrue(out, out.contains("    void f() {"));
+        assertTrue(out, out.contains("..."));
+    }
+
+    @Test
+    public void allmanBracesKeepTheHeadersAboveTheirBraceLines() {
+        String code = "public class A\n"
+                + "{\n"
+                + "    void f()\n"
+                + "    {\n"
+                + filler("        ", 0, 30)
+                + "        target();\n"
+                + filler("        ", 30, 60)
+                + "    }\n"
+                + "    void g()\n"
+                + "    {\n"
+                + "        other();\n"
+                + "    }\n"
+                + "}";
+        String out = CodeContextExtractor.extract(code, lineOf(code, "target()"), "csharp", 40);
+
+        assertTrue(out, out.contains("public class A\n{"));
+        assertTrue(out, out.contains("    void f()\n    {"));
+        assertTrue(out, out.contains("        target();"));
+        assertFalse(out, out.contains("other();"));
+    }
+
+    @Test
+    public void pythonBlocksFollowIndentation() {
+        String code = "def outer():\n"
+                + "    # set up\n"
+                + filler("    ", 0, 30).replace("int ", "")
+                + "    if ready:\n"
+                + "        target()  # the issue\n"
+                + filler("    ", 30, 60).replace("int ", "")
+                + "def other():\n"
+                + "    y = 2\n";
+        String out = CodeContextExtractor.extract(code, lineOf(code, "target()"), "python", 40);
+
+        assertTrue(out, out.startsWith("def outer():\n"));
+        assertTrue(out, out.contains("    if ready:\n        target()  # the issue"));
+        assertTrue(out, out.contains("    ..."));
+        assertFalse(out, out.contains("# set up"));
+        assertFalse(out, out.contains("def other():"));
+    }
+
+    @Test
+    public void hashIsAStringCharacterOutsideHashCommentLanguages() {
+        String code = "String tag = \"#main\";\nint x = 1;";
+
+        assertEquals(code, CodeContextExtractor.extract(code, 2, "java", LARGE));
+    }
+
+    @Test
+    public void commentMarkersInsideStringLiteralsAreKept() {
+        String code = "String url = \"http://example.com\"; // drop me\n"
+                + "String glob = \"/* not a comment */\";\n"
+                + "char q = '\"'; String s = \"//\"; // drop me too\n"
+                + "String t = `a // b`;\n"
+                + "int issue = 0;";
+        String out = CodeContextExtractor.extract(code, 5, "javascript", LARGE);
+
+        assertEquals("String url = \"http://example.com\";\n"
+                + "String glob = \"/* not a comment */\";\n"
+                + "char q = '\"'; String s = \"//\";\n"
+                + "String t = `a // b`;\n"
+                + "int issue = 0;", out);
+    }
+
+    @Test
+    public void lineOutsideTheSnippetFallsBackToItsTop() {
+        String code = "int first = 1; // note\n" + filler("", 0, 60) + "int last = 2;";
+        String whole = CodeContextExtractor.extract(code, null, "java", LARGE);
+
+        for (Integer line : new Integer[] {null, 0, -3, 999}) {
+            assertEquals(whole, CodeContextExtractor.extract(code, line, "java", LARGE));
+            String out = CodeContextExtractor.extract(code, line, "java", 20);
+            assertTrue(out, out.startsWith("int first = 1;\n"));
+            assertFalse(out, out.contains("// note"));
+            assertFalse(out, out.contains("int last = 2;"));
+        }
+        assertTrue(whole.startsWith("int first = 1;\n"));
+        assertTrue(whole.endsWith("int last = 2;"));
+    }
+
+    @Test
+    public void outputStaysWithinTheTokenTarget() {
+        String code = "class A {\n" + filler("    ", 0, 100) + "    void f() {\n"
+                + filler("        ", 100, 200) + "        target();\n"
+                + filler("        ", 200, 300) + "    }\n" + filler("    ", 300, 400) + "}";
+        int line = lineOf(code, "target()");
+        for (int maxTokens : new int[] {20, 50, 100, 400}) {
+            String out = CodeContextExtractor.extract(code, line, "java", maxTokens);
+            assertTrue(maxTokens + ": " + charged(out), charged(out) <= maxTokens);
+            assertTrue(out, out.contains("target();"));
+        }
+    }
+
+    @Test
+    public void anOverlongIssueLineIsCutToTheTarget() {
+        StringBuilder sb = new StringBuilder("call(");
+        for (int i = 0; i < 500; i++) {
+            sb.append("argument").append(i).append(", ");
+        }
+        String code = "int a = 1;\n" + sb + ");\nint b = 2;";
+        String out = CodeContextExtractor.extract(code, 2, "java", 10);
+
+        assertTrue(out, out.contains("call(argument0, "));
+        assertTrue(out, out.contains(" ..."));
+        assertTrue(out, out.length() < 10 * 4 + 20);
+    }
+}
@@ -0,0 +1,112 @@
+// src/test/java/com/somdiproy/lambda/suggestions/util/HeuristicTokenCounterTest.java
+package com.somdiproy.lambda.suggestions.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeuristicTokenCounterTest {
+
+    private static final String CODE = "for (int i = 0; i < items.size(); i++) {";
+    private static final String PROSE = "The quick brown fox jumps over the lazy dog.";
+
+    private static void assertBetween(int low, int high, int actual) {
+        assertTrue(actual + " not in [" + low + ", " + high + "]", actual >= low && actual <= high);
+    }
+
+    @Test
+    public void codeLineCountsRoughlyLikeBpe() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+
+        // A BPE tokenizer splits these into about 17 and 11 tokens
+        assertBetween(13, 21, counter.count(CODE));
+        assertBetween(8, 15, counter.count("    return userRepository.findByEmailAddress(email);"));
+    }
+
+    @Test
+    public void proseLineCountsRoughlyLikeBpe() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+
+        // About 10 and 11 BPE tokens
+        assertBetween(8, 13, counter.count(PROSE));
+        assertBetween(8, 14, counter.count("Validate user input before it reaches the database query."));
+    }
+
+    @Test
+    public void linesAreClassedAsCodeOrProse() {
+        long code = HeuristicTokenCounter.scan(CODE);
+        long prose = HeuristicTokenCounter.scan(PROSE);
+
+        assertTrue(code >>> 32 > 0);
+        assertEquals(0, (int) code);
+        assertEquals(0, prose >>> 32);
+        assertTrue((int) prose > 0);
+
+        long both = HeuristicTokenCounter.scan(CODE + "\n" + PROSE);
+        assertEquals((code >>> 32) + 1, both >>> 32);
+        assertEquals((int) prose, (int) both);
+    }
+
+    @Test
+    public void emptyTextIsFree() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+
+        assertEquals(0, counter.count(null));
+        assertEquals(0, counter.count(""));
+    }
+
+    @Test
+    public void observeMovesTheModelFactorTowardsReportedUsage() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+        int estimate = counter.count(PROSE, "model-a");
+        int reported = estimate * 2;
+
+        int previous = estimate;
+        for (int i = 0; i < 20; i++) {
+            counter.observe(PROSE, "model-a", reported);
+            int next = counter.count(PROSE, "model-a");
+            assertTrue(next >= previous);
+            assertTrue(next <= reported);
+            previous = next;
+        }
+        assertBetween(reported - 3, reported, previous);
+
+        // Only the prose factor had anything to learn from
+        double[] factors = counter.getCorrections().get("model-a");
+        assertEquals(1.0, factors[0], 1e-9);
+        assertTrue(factors[1] > 1.5);
+    }
+
+    @Test
+    public void observeIsClampedAndIgnoresEmptyReports() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+        int estimate = counter.count(CODE, "model-a");
+        counter.observe(CODE, "model-a", 0);
+        counter.observe("", "model-a", 100);
+        assertEquals(estimate, counter.count(CODE, "model-a"));
+
+        for (int i = 0; i < 200; i++) {
+            counter.observe(CODE, "model-a", estimate * 10);
+        }
+        assertEquals(2.5, counter.getCorrections().get("model-a")[0], 1e-9);
+    }
+
+    @Test
+    public void newModelStartsFromWhatWasLearnedAcrossAllModels() {
+        HeuristicTokenCounter counter = new HeuristicTokenCounter();
+        int untrained = counter.count(PROSE);
+        for (int i = 0; i < 10; i++) {
+            counter.observe(PROSE, "model-a", untrained * 2);
+        }
+
+        int shared = counter.count(PROSE);
+        assertTrue(shared > untrained);
+        assertEquals(shared, counter.count(PROSE, "model-b"));
+        assertTrue(counter.getCorrections().get("model-b")[1] > 1.0);
+
+        // model-b keeps its own factors from then on
+        counter.observe(PROSE, "model-b", untrained);
+        assertTrue(counter.count(PROSE, "model-b") < counter.count(PROSE, "model-a"));
+    }
+}
@@ -0,0 +1,76 @@
+// src/test/java/com/somdiproy/lambda/suggestions/util/JsonRepairTest.java
+package com.somdiproy.lambda.suggestions.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonRepairTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Input cut at various points, and the repair expected for it
+    private static final String[][] TRUNCATED = {
+            {"{\"a\":\"x\",\"b\"", "{\"a\":\"x\"}"},
+            {"{\"a\":\"x\",\"b", "{\"a\":\"x\"}"},
+            {"{\"a\":\"x\", \"b\" ", "{\"a\":\"x\"}"},
+            {"{\"b\"", "{}"},
+            {"{\"a\":\"x\",\"b\":", "{\"a\":\"x\",\"b\":null}"},
+            {"{\"a\":\"x\",", "{\"a\":\"x\"}"},
+            {"{\"a\":\"xy", "{\"a\":\"xy\"}"},
+            {"{\"a\":{\"b\":1,\"c\"", "{\"a\":{\"b\":1}}"},
+            {"{\"a\":[\"x\",\"y", "{\"a\":[\"x\",\"y\"]}"},
+            {"[{\"a\":1},{\"b\"", "[{\"a\":1},{}]"},
+            {"{\"a\":tr", "{\"a\":true}"},
+            {"{\"a\":fal", "{\"a\":false}"},
+            {"{\"a\":n", "{\"a\":null}"},
+            {"{\"a\":1.5e", "{\"a\":1.5}"},
+            {"{\"a\":-", "{\"a\":null}"},
+            {"{\"a\":12", "{\"a\":12}"},
+            {"{\"a\":\"x\\", "{\"a\":\"x\\\\\"}"},
+            {"{\"a\":\"x\\u00", "{\"a\":\"x\\\\u00\"}"},
+    };
+
+    // Complete but malformed input, and the repair expected for it
+    private static final String[][] MALFORMED = {
+            {"{\"a\":\"x\",\"b\"}", "{\"a\":\"x\"}"},
+            {"{\"a\":\"\\u00e9\"}", "{\"a\":\"\\u00e9\"}"},
+            {"{\"a\":\"\\u00zz\"}", "{\"a\":\"\\\\u00zz\"}"},
+            {"{\"a\":\"C:\\dir\"}", "{\"a\":\"C:\\\\dir\"}"},
+            {"{\"a\":[1,2,],}", "{\"a\":[1,2]}"},
+            {"Here you go: {\"a\":1} hope it helps", "{\"a\":1}"},
+            {"{\"a\":\"line\nbreak\"}", "{\"a\":\"line\\nbreak\"}"},
+            {"{\"a\":\"say \"hi\" now\"}", "{\"a\":\"say \\\"hi\\\" now\"}"},
+    };
+
+    @Test
+    public void truncatedInputIsClosedIntoValidJson() {
+        assertTable(TRUNCATED);
+    }
+
+    @Test
+    public void malformedInputIsRepaired() {
+        assertTable(MALFORMED);
+    }
+
+    @Test
+    public void inputWithoutJsonGivesNull() {
+        assertNull(JsonRepair.repair("no json here"));
+        assertNull(JsonRepair.repair(null));
+    }
+
+    private static void assertTable(String[][] cases) {
+        for (String[] c : cases) {
+            String repaired = JsonRepair.repair(c[0]);
+            assertEquals("repair of " + c[0], c[1], repaired);
+            try {
+                MAPPER.readTree(repaired);
+            } catch (Exception e) {
+                fail("repair of " + c[0] + " is not valid JSON: " + repaired);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+// src/test/java/com/somdiproy/lambda/suggestions/util/PackedResponseParserTest.java
+package com.somdiproy.lambda.suggestions.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.somdiproy.lambda.suggestions.model.DeveloperSuggestion;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PackedResponseParserTest {
+
+    private static final ObjectReader READER = new ObjectMapper().readerFor(DeveloperSuggestion.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+
+    private static final List<String> IDS = List.of("i1", "i2", "i3");
+
+    private static String element(String issueId, String title) {
+        return "{\"issueId\":\"" + issueId + "\",\"immediateFix\":{\"title\":\"" + title + "\"}}";
+    }
+
+    private static String title(DeveloperSuggestion suggestion) {
+        return suggestion.getImmediateFix().getTitle();
+    }
+
+    @Test
+    public void arrayElementsAreMatchedByIssueIdNotPosition() {
+        String response = "[" + element("i3", "third") + "," + element("i1", "first") + ","
+                + element("i2", "second") + "]";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals(3, matched.size());
+        assertEquals("first", title(matched.get(0)));
+        assertEquals("second", title(matched.get(1)));
+        assertEquals("third", title(matched.get(2)));
+    }
+
+    @Test
+    public void responseInACodeFenceWithProse() {
+        String response = "Here are the fixes:\n```json\n[\n" + element("i1", "first") + ",\n"
+                + element("i2", "second") + ",\n" + element("i3", "third") + "\n]\n```\nLet me know.";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals("first", title(matched.get(0)));
+        assertEquals("third", title(matched.get(2)));
+    }
+
+    @Test
+    public void missingAndMalformedElementsLeaveTheirIssueUnmatched() {
+        String response = "[" + element("i1", "first") + ", {\"issueId\": \"i2\", \"immediateFix\": 42}]";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals("first", title(matched.get(0)));
+        assertNull(matched.get(1));
+        assertNull(matched.get(2));
+    }
+
+    @Test
+    public void repairableElementIsKept() {
+        String response = "[{\"issueId\":\"i2\",\"immediateFix\":{\"title\":\"second\",},}]";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals("second", title(matched.get(1)));
+    }
+
+    @Test
+    public void firstElementWinsForADuplicateIssueId() {
+        String response = "[" + element("i1", "first") + "," + element("i1", "again") + "]";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals("first", title(matched.get(0)));
+        assertNull(matched.get(1));
+    }
+
+    @Test
+    public void bracesInsideStringsDoNotSplitElements() {
+        String code = "if (a) { return \\\"}\\\"; } // {";
+        String response = "[{\"issueId\":\"i1\",\"immediateFix\":{\"title\":\"t\",\"replaceCode\":\"" + code
+                + "\"}}," + element("i2", "second") + "]";
+
+        List<String> objects = PackedResponseParser.splitTopLevelObjects(response);
+        assertEquals(2, objects.size());
+        assertEquals(element("i2", "second"), objects.get(1));
+
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+        assertEquals("if (a) { return \"}\"; } // {", matched.get(0).getImmediateFix().getReplaceCode());
+        assertEquals("second", title(matched.get(1)));
+    }
+
+    @Test
+    public void bareObjectWithoutIssueIdServesEveryIssue() {
+        // The shape of the template fallback's answer to a packed prompt
+        String response = "{\"immediateFix\":{\"title\":\"Template fix\"},\"bestPractice\":{\"title\":\"bp\"}}";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertEquals(3, matched.size());
+        assertEquals("Template fix", title(matched.get(0)));
+        assertSame(matched.get(0), matched.get(2));
+    }
+
+    @Test
+    public void elementsWithoutIssueIdAmongOthersAreIgnored() {
+        String response = "[{\"immediateFix\":{\"title\":\"anonymous\"}}," + element("i2", "second") + "]";
+        List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+
+        assertNull(matched.get(0));
+        assertEquals("second", title(matched.get(1)));
+        assertNull(matched.get(2));
+    }
+
+    @Test
+    public void noJsonAtAllMatchesNothing() {
+        for (String response : new String[] {null, "", "Sorry, I cannot help with that.", "[{\"issueId\":\"i1\""}) {
+            List<DeveloperSuggestion> matched = PackedResponseParser.match(response, IDS, READER);
+            assertEquals(3, matched.size());
+            for (DeveloperSuggestion suggestion : matched) {
+                assertNull(suggestion);
+            }
+        }
+    }
+
+    @Test
+    public void tokenSharesAddUpToTheTotal() {
+        assertEquals(35, PackedResponseParser.tokenShare(101, 3, 0));
+        assertEquals(33, PackedResponseParser.tokenShare(101, 3, 1));
+        assertEquals(33, PackedResponseParser.tokenShare(101, 3, 2));
+        int sum = 0;
+        for (int i = 0; i < 7; i++) {
+            sum += PackedResponseParser.tokenShare(1000, 7, i);
+        }
+        assertEquals(1000, sum);
+        assertNotNull(PackedResponseParser.splitTopLevelObjects(null));
+    }
+}